@@ -0,0 +1,95 @@
+package at.ac.tuwien.sepm.assignment.individual.benchmark;
+
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseFamilyTreeDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseSearchDto;
+import at.ac.tuwien.sepm.assignment.individual.mapper.HorseMapper;
+import at.ac.tuwien.sepm.assignment.individual.service.HorseService;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing and reading a search of every horse and a deep family tree in the encodings the endpoints negotiate,
+ * with the object mappers of the backend's message converters.
+ * The size of both bodies in the encoding is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncodingBenchmark {
+
+  /**
+   * Media type of the encoding, as accepted by the client.
+   */
+  @Param({"application/json", "application/cbor", "application/x-jackson-smile"})
+  public String encoding;
+
+  private ObjectMapper objectMapper;
+  private JavaType horsesType;
+  private List<HorseListDto> horses;
+  private HorseFamilyTreeDto familyTree;
+  private byte[] encodedHorses;
+  private byte[] encodedFamilyTree;
+
+  @Setup(Level.Trial)
+  public void setUp(PedigreeState pedigree) throws IOException {
+    MediaType mediaType = MediaType.parseMediaType(encoding);
+    objectMapper = pedigree.bean(HttpMessageConverters.class).getConverters().stream()
+            .filter(converter -> converter instanceof AbstractJackson2HttpMessageConverter
+                    && converter.canWrite(HorseListDto.class, mediaType))
+            .map(converter -> ((AbstractJackson2HttpMessageConverter) converter).getObjectMapper())
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("No converter writes " + encoding));
+    horsesType = objectMapper.getTypeFactory().constructCollectionType(List.class, HorseListDto.class);
+    horses = pedigree.bean(HorseService.class)
+            .searchForHorses(new HorseSearchDto(null, null, null, null, null, null, null, null))
+            .toList();
+    familyTree = pedigree.bean(HorseMapper.class).entityToFamilyTreeDto(pedigree.rootId, pedigree.ancestors);
+    encodedHorses = objectMapper.writeValueAsBytes(horses);
+    encodedFamilyTree = objectMapper.writeValueAsBytes(familyTree);
+    System.out.printf("%n%s: %d horses in %d bytes, family tree of %d generations in %d bytes%n",
+            encoding, horses.size(), encodedHorses.length, pedigree.generations, encodedFamilyTree.length);
+  }
+
+  @Benchmark
+  public byte[] writeHorses() throws IOException {
+    return objectMapper.writeValueAsBytes(horses);
+  }
+
+  @Benchmark
+  public List<HorseListDto> readHorses() throws IOException {
+    return objectMapper.readValue(encodedHorses, horsesType);
+  }
+
+  @Benchmark
+  public byte[] writeFamilyTree() throws IOException {
+    return objectMapper.writeValueAsBytes(familyTree);
+  }
+
+  @Benchmark
+  public HorseFamilyTreeDto readFamilyTree() throws IOException {
+    return objectMapper.readValue(encodedFamilyTree, HorseFamilyTreeDto.class);
+  }
+}
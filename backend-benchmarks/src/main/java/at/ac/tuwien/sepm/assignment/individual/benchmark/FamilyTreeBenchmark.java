@@ -0,0 +1,73 @@
+package at.ac.tuwien.sepm.assignment.individual.benchmark;
+
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseFamilyTreeDto;
+import at.ac.tuwien.sepm.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepm.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepm.assignment.individual.mapper.HorseMapper;
+import at.ac.tuwien.sepm.assignment.individual.persistence.HorseDao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading the ancestors of a horse and mapping them to a nested family tree.
+ * <p>
+ * {@link #getFamilyTree} measures the DAO, which walks the in-memory pedigree index, not the data store.
+ * {@link #getFamilyTreeFromDataStore} runs the recursive query the index replaced,
+ * so the latency of the data store can still be compared against it.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FamilyTreeBenchmark {
+  private static final String SQL_RECURSIVE_TREE = "WITH RECURSIVE ancestors (id, mother_id, father_id, generation) AS"
+          + " (SELECT id, mother_id, father_id, 1 FROM horse WHERE id = ?"
+          + " UNION"
+          + " SELECT h.id, h.mother_id, h.father_id, a.generation + 1 FROM horse h"
+          + " JOIN ancestors a ON (h.id = a.mother_id OR h.id = a.father_id)"
+          + " WHERE a.generation < ?)"
+          + " SELECT DISTINCT id FROM ancestors";
+
+  private HorseDao dao;
+  private HorseMapper mapper;
+  private JdbcTemplate jdbcTemplate;
+
+  @Setup(Level.Trial)
+  public void setUp(PedigreeState pedigree) {
+    dao = pedigree.bean(HorseDao.class);
+    mapper = pedigree.bean(HorseMapper.class);
+    jdbcTemplate = pedigree.bean(JdbcTemplate.class);
+  }
+
+  @Benchmark
+  public List<Horse> getFamilyTree(PedigreeState pedigree) throws NotFoundException {
+    return dao.getFamilyTree(pedigree.rootId, (long) pedigree.generations);
+  }
+
+  @Benchmark
+  public List<Horse> getFamilyTreeFromDataStore(PedigreeState pedigree) {
+    List<Long> ids = jdbcTemplate.queryForList(SQL_RECURSIVE_TREE, Long.class, pedigree.rootId, pedigree.generations);
+    return dao.getAllById(ids).stream().toList();
+  }
+
+  @Benchmark
+  public HorseFamilyTreeDto entityToFamilyTreeDto(PedigreeState pedigree) {
+    return mapper.entityToFamilyTreeDto(pedigree.rootId, pedigree.ancestors);
+  }
+}
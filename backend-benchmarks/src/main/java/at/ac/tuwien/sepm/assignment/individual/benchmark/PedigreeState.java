@@ -0,0 +1,81 @@
+package at.ac.tuwien.sepm.assignment.individual.benchmark;
+
+import at.ac.tuwien.sepm.assignment.individual.SepmIndividualAssignmentApplication;
+import at.ac.tuwien.sepm.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepm.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepm.assignment.individual.persistence.HorseDao;
+import at.ac.tuwien.sepm.assignment.individual.persistence.PedigreeGenerator;
+import at.ac.tuwien.sepm.assignment.individual.persistence.impl.PedigreeIndex;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * The backend without its web layer, running against an in-memory database
+ * seeded with a synthetic pedigree of {@link #horses} horses in {@link #generations} generations.
+ * Every benchmark trial gets its own database.
+ */
+@State(Scope.Benchmark)
+public class PedigreeState {
+  private static final long SEED = 42L;
+
+  @Param({"10000", "100000"})
+  public int horses;
+
+  @Param({"10", "30"})
+  public int generations;
+
+  /**
+   * ID of a horse of the last generation, which has the deepest family tree.
+   */
+  public long rootId;
+
+  /**
+   * The ancestors of {@link #rootId}, for benchmarks of mapping them.
+   */
+  public List<Horse> ancestors;
+
+  private ConfigurableApplicationContext context;
+
+  @Setup(Level.Trial)
+  public void setUp() throws SQLException, NotFoundException {
+    context = new SpringApplicationBuilder(SepmIndividualAssignmentApplication.class)
+            .web(WebApplicationType.NONE)
+            .run(
+                    "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                    "--logging.level.root=WARN",
+                    "--logging.file.name=");
+    new PedigreeGenerator(bean(DataSource.class))
+            .generate(new PedigreeGenerator.Settings(Math.max(1, horses / 10), horses, generations, SEED, 0.05, 3.0, 5000));
+    bean(PedigreeIndex.class).reload();
+    rootId = bean(JdbcTemplate.class).queryForObject("SELECT MAX(id) FROM horse", Long.class);
+    ancestors = bean(HorseDao.class).getFamilyTree(rootId, (long) generations);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  /**
+   * Get a bean of the backend.
+   *
+   * @param type the type of the bean
+   * @param <T>  the type of the bean
+   * @return the bean
+   */
+  public <T> T bean(Class<T> type) {
+    return context.getBean(type);
+  }
+}
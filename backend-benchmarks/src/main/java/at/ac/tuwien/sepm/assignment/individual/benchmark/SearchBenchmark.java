@@ -0,0 +1,62 @@
+package at.ac.tuwien.sepm.assignment.individual.benchmark;
+
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseSearchDto;
+import at.ac.tuwien.sepm.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepm.assignment.individual.persistence.HorseDao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Searching horses and fetching them by ID, which is dominated by mapping the result rows to horses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+  private static final int FETCHED_BY_ID = 1000;
+
+  /**
+   * Substring of the names to search for, the generated names are made of the same syllables.
+   */
+  @Param({"ra", "belma"})
+  public String name;
+
+  private HorseDao dao;
+  private HorseSearchDto search;
+  private List<Long> ids;
+
+  @Setup(Level.Trial)
+  public void setUp(PedigreeState pedigree) {
+    dao = pedigree.bean(HorseDao.class);
+    search = new HorseSearchDto(name, null, null, null, null, null, null, null);
+    ids = LongStream.rangeClosed(pedigree.rootId - FETCHED_BY_ID + 1, pedigree.rootId).boxed().toList();
+  }
+
+  @Benchmark
+  public List<Horse> searchForHorses() {
+    return dao.searchForHorses(search);
+  }
+
+  @Benchmark
+  public Collection<Horse> getAllById() {
+    return dao.getAllById(ids);
+  }
+}
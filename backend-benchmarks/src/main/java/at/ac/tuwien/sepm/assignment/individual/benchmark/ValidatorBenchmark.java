@@ -0,0 +1,48 @@
+package at.ac.tuwien.sepm.assignment.individual.benchmark;
+
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseDetailDto;
+import at.ac.tuwien.sepm.assignment.individual.exception.ConflictException;
+import at.ac.tuwien.sepm.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepm.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepm.assignment.individual.persistence.HorseDao;
+import at.ac.tuwien.sepm.assignment.individual.service.impl.HorseValidator;
+import at.ac.tuwien.sepm.assignment.individual.type.HorseField;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validating the update of a horse with owner and parents, as done for every {@code PUT /horses/{id}}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidatorBenchmark {
+  private HorseValidator validator;
+  private HorseDetailDto horse;
+
+  @Setup(Level.Trial)
+  public void setUp(PedigreeState pedigree) throws NotFoundException {
+    validator = pedigree.bean(HorseValidator.class);
+    horse = pedigree.bean(HorseDao.class).getDetailById(pedigree.rootId, HorseField.DETAIL);
+  }
+
+  @Benchmark
+  public HorseDetailDto validateForUpdate() throws ValidationException, ConflictException {
+    validator.validateForUpdate(horse);
+    return horse;
+  }
+}
@@ -0,0 +1,25 @@
+package at.ac.tuwien.sepm.assignment.individual.config;
+
+import at.ac.tuwien.sepm.assignment.individual.type.ExportFormat;
+import at.ac.tuwien.sepm.assignment.individual.type.HorseField;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.format.FormatterRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.Locale;
+
+/**
+ * Conversions of request parameters.
+ */
+@Configuration
+public class ConversionConfig implements WebMvcConfigurer {
+
+  @Override
+  public void addFormatters(FormatterRegistry registry) {
+    // formats are given in lower case in URLs, e.g. ?format=ndjson
+    registry.addConverter(String.class, ExportFormat.class,
+            source -> ExportFormat.valueOf(source.trim().toUpperCase(Locale.ROOT)));
+    // fields are given by the names of their properties, e.g. ?fields=name,dateOfBirth
+    registry.addConverter(String.class, HorseField.class, source -> HorseField.ofProperty(source.trim()));
+  }
+}
@@ -0,0 +1,101 @@
+package at.ac.tuwien.sepm.assignment.individual.config;
+
+import at.ac.tuwien.sepm.assignment.individual.rest.SparseFieldsets;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+
+/**
+ * Configuration of the object mappers writing responses.
+ * <p>
+ * Besides JSON, the responses of the horse and owner endpoints are encoded as CBOR or Smile,
+ * if the client accepts {@code application/cbor} or {@code application/x-jackson-smile}.
+ * The binary encodings serialize the same DTOs, but write dates as {@code [year, month, day]} arrays,
+ * which are neither formatted nor parsed as text.
+ * </p>
+ */
+@Configuration
+public class JacksonConfig implements WebMvcConfigurer {
+
+  /**
+   * Registers sparse fieldsets with the application's object mapper.
+   *
+   * @return the customizer of the application's object mapper
+   */
+  @Bean
+  public Jackson2ObjectMapperBuilderCustomizer sparseFieldsetsCustomizer() {
+    return builder -> builder.postConfigurer(SparseFieldsets::register);
+  }
+
+  /**
+   * Converter writing responses as CBOR, replacing the default one of Spring Boot.
+   *
+   * @param customizers the customizers of the application's object mapper
+   * @return the converter
+   */
+  @Bean
+  public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(
+          ObjectProvider<Jackson2ObjectMapperBuilderCustomizer> customizers) {
+    return new MappingJackson2CborHttpMessageConverter(binary(Jackson2ObjectMapperBuilder.cbor(), customizers));
+  }
+
+  /**
+   * Converter writing responses as Smile, replacing the default one of Spring Boot.
+   *
+   * @param customizers the customizers of the application's object mapper
+   * @return the converter
+   */
+  @Bean
+  public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(
+          ObjectProvider<Jackson2ObjectMapperBuilderCustomizer> customizers) {
+    return new MappingJackson2SmileHttpMessageConverter(binary(Jackson2ObjectMapperBuilder.smile(), customizers));
+  }
+
+  private static ObjectMapper binary(
+          Jackson2ObjectMapperBuilder builder,
+          ObjectProvider<Jackson2ObjectMapperBuilderCustomizer> customizers) {
+    // configured like the application's object mapper first, so both encodings agree on everything but dates
+    customizers.orderedStream().forEach(customizer -> customizer.customize(builder));
+    return builder.featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+  }
+
+  @Override
+  public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+    // not every converter uses the application's object mapper
+    for (HttpMessageConverter<?> converter : converters) {
+      if (converter instanceof AbstractJackson2HttpMessageConverter jacksonConverter) {
+        SparseFieldsets.register(jacksonConverter.getObjectMapper());
+      }
+    }
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    // the same URL is answered in different encodings, caches have to keep them apart
+    registry.addInterceptor(new HandlerInterceptor() {
+      @Override
+      public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT)) {
+          response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        return true;
+      }
+    }).addPathPatterns("/horses/**", "/owners/**");
+  }
+}
@@ -1,6 +1,8 @@
 package at.ac.tuwien.sepm.assignment.individual.config;
 
 
+import at.ac.tuwien.sepm.assignment.individual.metrics.MetricsRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -11,8 +13,10 @@ import org.springframework.web.filter.OncePerRequestFilter;
 public class LogConfiguration {
 
   @Bean
-  public FilterRegistrationBean<OncePerRequestFilter> logFilter() {
-    var reg = new FilterRegistrationBean<OncePerRequestFilter>(new LogFilter());
+  public FilterRegistrationBean<OncePerRequestFilter> logFilter(
+          MetricsRegistry metrics,
+          @Value("${query.repeat-threshold:10}") int repeatThreshold) {
+    var reg = new FilterRegistrationBean<OncePerRequestFilter>(new LogFilter(metrics, repeatThreshold));
     reg.addUrlPatterns("/*");
     reg.setName("logFilter");
     reg.setOrder(Ordered.LOWEST_PRECEDENCE);
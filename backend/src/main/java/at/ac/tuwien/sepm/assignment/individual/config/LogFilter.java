@@ -1,63 +1,119 @@
 package at.ac.tuwien.sepm.assignment.individual.config;
 
 import at.ac.tuwien.sepm.assignment.individual.exception.FatalException;
+import at.ac.tuwien.sepm.assignment.individual.metrics.MetricsRegistry;
+import at.ac.tuwien.sepm.assignment.individual.metrics.QueryStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
 
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.lang.invoke.MethodHandles;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
 
 /**
- * ServletFilter to log every request.
+ * ServletFilter to log every request, and record its latency in the {@link MetricsRegistry}.
+ * The latency of a request with an asynchronously written response, like a stream, is recorded once it is written.
+ * <p>
+ * The JDBC statements executed while handling the request are counted with {@link QueryStats}.
+ * The counts are logged with the request, and sent in response headers, as far as they are known
+ * when the response is committed.
+ * Requests executing the same shape of statement more than {@code query.repeat-threshold} times,
+ * which is typical for N+1 queries, are logged as warnings.
+ * Statements executed by asynchronously written responses are not counted.
+ * </p>
  */
 public class LogFilter extends OncePerRequestFilter {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
-  private static final DecimalFormat REQUEST_RUNTIME_FORMAT = new DecimalFormat("#.###", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
-  private static final Long NANOSECONDS_PER_MS = 1000_000L;
+  public static final String REQUEST_ID_HEADER = "X-Request-Id";
+  public static final String QUERY_COUNT_HEADER = "X-Query-Count";
+  public static final String QUERY_ROWS_HEADER = "X-Query-Rows";
+  public static final String QUERY_TIME_HEADER = "X-Query-Time-Ms";
+  private static final double NANOSECONDS_PER_MS = 1000_000.0;
   private static final List<String> MUTED_PATHS = Arrays.asList(
           "/swagger-ui/",
           "/swagger.yaml"
   );
+  private final MetricsRegistry metrics;
+  private final int repeatThreshold;
 
+  public LogFilter(MetricsRegistry metrics, int repeatThreshold) {
+    this.metrics = metrics;
+    this.repeatThreshold = repeatThreshold;
+  }
 
   @Override
   public void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) {
-    var runtime = -1L;
+    var start = System.nanoTime();
     var shouldLog = shouldLog(request);
     if (shouldLog) {
       populateMDC(request);
       beforeRequest(request);
     }
+    var queries = QueryStats.start();
+    var countingResponse = new QueryHeaderResponse(response, queries, MDC.get("r"));
     try {
-      //keep timestamp
-      runtime = System.nanoTime();
       //do the work
-      filterChain.doFilter(request, response);
+      filterChain.doFilter(request, countingResponse);
+      countingResponse.addQueryHeaders();
     } catch (ServletException | IOException e) {
       throw new FatalException(e);
     } finally {
-      //runtime = end - start
-      runtime = System.nanoTime() - runtime;
+      QueryStats.stop();
+      var runtime = System.nanoTime() - start;
       if (shouldLog) {
-        afterRequest(request, response, runtime);
+        afterRequest(request, response, runtime, queries);
+      }
+      if (request.isAsyncStarted()) {
+        request.getAsyncContext().addListener(new AsyncListener() {
+          @Override
+          public void onComplete(AsyncEvent event) {
+            recordRequest(request, response, System.nanoTime() - start);
+          }
+
+          @Override
+          public void onTimeout(AsyncEvent event) {
+          }
+
+          @Override
+          public void onError(AsyncEvent event) {
+          }
+
+          @Override
+          public void onStartAsync(AsyncEvent event) {
+          }
+        });
+      } else {
+        recordRequest(request, response, runtime);
       }
       MDC.clear();
     }
   }
 
+  private void recordRequest(HttpServletRequest request, HttpServletResponse response, long runtime) {
+    var route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    metrics.recordRequest(
+            request.getMethod(),
+            route == null ? MetricsRegistry.UNMATCHED_ROUTE : route.toString(),
+            response.getStatus(),
+            runtime);
+  }
+
   private void beforeRequest(HttpServletRequest request) {
     var b = getUrlString(">>> ", request);
     var agent = request.getHeader("User-Agent");
@@ -67,7 +123,7 @@ public class LogFilter extends OncePerRequestFilter {
     logWithRightCategory(200, b.toString());
   }
 
-  private void afterRequest(HttpServletRequest request, HttpServletResponse response, Long runtime) {
+  private void afterRequest(HttpServletRequest request, HttpServletResponse response, Long runtime, QueryStats queries) {
     var b = getUrlString("<<< ", request);
     var logStatus = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
     if (response != null) {
@@ -77,10 +133,84 @@ public class LogFilter extends OncePerRequestFilter {
     } else {
       b.append(" NO RESPONSE");
     }
-    var time = REQUEST_RUNTIME_FORMAT.format(runtime / NANOSECONDS_PER_MS);
+    var time = formatMillis(runtime);
     MDC.put("duration", time);
     b.append(" time=").append(time).append("ms");
+    var dbTime = formatMillis(queries.nanos());
+    MDC.put("db_queries", "" + queries.statements());
+    MDC.put("db_rows", "" + queries.rows());
+    MDC.put("db_time", dbTime);
+    b.append(" queries=").append(queries.statements())
+            .append(" rows=").append(queries.rows())
+            .append(" db=").append(dbTime).append("ms");
     logWithRightCategory(logStatus, b.toString());
+    var repeated = queries.mostRepeated();
+    if (repeated != null && repeated.getValue() > repeatThreshold) {
+      MDC.put("db_repeated", "" + repeated.getValue());
+      LOG.warn("Possible N+1 queries: statement executed {} times: {}", repeated.getValue(), repeated.getKey());
+    }
+  }
+
+  private static String formatMillis(long nanos) {
+    return String.format(Locale.ENGLISH, "%.3f", nanos / NANOSECONDS_PER_MS);
+  }
+
+  /**
+   * Adds the request id and the query statistics to the response, right before it is committed.
+   */
+  private static class QueryHeaderResponse extends HttpServletResponseWrapper {
+    private final QueryStats queries;
+    private final String requestId;
+    private boolean headersAdded;
+
+    QueryHeaderResponse(HttpServletResponse response, QueryStats queries, String requestId) {
+      super(response);
+      this.queries = queries;
+      this.requestId = requestId;
+    }
+
+    void addQueryHeaders() {
+      if (headersAdded || isCommitted()) {
+        return;
+      }
+      headersAdded = true;
+      if (requestId != null) {
+        setHeader(REQUEST_ID_HEADER, requestId);
+      }
+      setHeader(QUERY_COUNT_HEADER, "" + queries.statements());
+      setHeader(QUERY_ROWS_HEADER, "" + queries.rows());
+      setHeader(QUERY_TIME_HEADER, formatMillis(queries.nanos()));
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      addQueryHeaders();
+      return super.getOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      addQueryHeaders();
+      return super.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+      addQueryHeaders();
+      super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+      addQueryHeaders();
+      super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+      addQueryHeaders();
+      super.sendError(sc);
+    }
   }
 
   private void populateMDC(HttpServletRequest request) {
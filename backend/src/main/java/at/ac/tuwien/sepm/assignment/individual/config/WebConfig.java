@@ -1,5 +1,6 @@
 package at.ac.tuwien.sepm.assignment.individual.config;
 
+import at.ac.tuwien.sepm.assignment.individual.rest.HorseEndpoint;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
@@ -12,6 +13,8 @@ public class WebConfig implements WebMvcConfigurer {
 
   @Override
   public void addCorsMappings(CorsRegistry registry) {
-    registry.addMapping("/**").allowedMethods("GET", "POST", "OPTIONS", "HEAD", "DELETE", "PUT", "PATCH");
+    registry.addMapping("/**").allowedMethods("GET", "POST", "OPTIONS", "HEAD", "DELETE", "PUT", "PATCH")
+            .exposedHeaders(HorseEndpoint.NEXT_CURSOR_HEADER, LogFilter.REQUEST_ID_HEADER,
+                    LogFilter.QUERY_COUNT_HEADER, LogFilter.QUERY_ROWS_HEADER, LogFilter.QUERY_TIME_HEADER);
   }
 }
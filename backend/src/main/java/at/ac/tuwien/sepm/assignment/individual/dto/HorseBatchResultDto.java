@@ -0,0 +1,17 @@
+package at.ac.tuwien.sepm.assignment.individual.dto;
+
+import java.util.List;
+
+/**
+ * DTO reporting the outcome of creating a single horse of a batch
+ *
+ * @param index  position of the horse in the submitted batch
+ * @param horse  the created horse, null if the horse was not created
+ * @param errors validation and conflict errors of the horse, empty if the horse was created
+ */
+public record HorseBatchResultDto(
+        int index,
+        HorseDetailDto horse,
+        List<String> errors
+) {
+}
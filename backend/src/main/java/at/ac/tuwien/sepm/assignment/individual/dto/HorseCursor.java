@@ -0,0 +1,44 @@
+package at.ac.tuwien.sepm.assignment.individual.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in the list of horses ordered by name and ID, used for keyset pagination.
+ * Handed to clients as an opaque string, see {@link #encode()} and {@link #decode(String)}.
+ *
+ * @param name name of the last horse on the previous page
+ * @param id   ID of the last horse on the previous page
+ */
+public record HorseCursor(
+        String name,
+        long id
+) {
+  /**
+   * Encode this cursor as an opaque, URL safe string.
+   *
+   * @return the encoded cursor
+   */
+  public String encode() {
+    return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString((id + ":" + name).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decode a cursor previously produced by {@link #encode()}.
+   *
+   * @param cursor the encoded cursor
+   * @return the decoded cursor
+   * @throws IllegalArgumentException if {@code cursor} is not a valid encoded cursor
+   */
+  public static HorseCursor decode(String cursor) {
+    String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    int separator = decoded.indexOf(':');
+    if (separator < 0) {
+      throw new IllegalArgumentException("Malformed cursor");
+    }
+    return new HorseCursor(
+            decoded.substring(separator + 1),
+            Long.parseLong(decoded.substring(0, separator)));
+  }
+}
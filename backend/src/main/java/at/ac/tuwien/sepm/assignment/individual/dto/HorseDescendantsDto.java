@@ -0,0 +1,23 @@
+package at.ac.tuwien.sepm.assignment.individual.dto;
+
+import java.util.List;
+
+/**
+ * DTO representing the progeny of a single Horse as a flat table of its descendants,
+ * in the same layout as {@link HorseFamilyTreeTableDto}.
+ * Every descendant is contained only once, parents are referenced by the index of their row,
+ * a parent which is not a descendant of the root horse itself is not part of the table.
+ *
+ * @param columns          names of the values of every row, in order
+ * @param generationCounts number of descendants per generation, starting with the children of the root horse
+ * @param horses           the root Horse, at index 0, followed by its descendants ordered by their depth
+ */
+public record HorseDescendantsDto(
+        List<String> columns,
+        List<Integer> generationCounts,
+        List<HorseFamilyTreeRowDto> horses
+) {
+  public HorseDescendantsDto(List<Integer> generationCounts, List<HorseFamilyTreeRowDto> horses) {
+    this(HorseFamilyTreeTableDto.COLUMNS, generationCounts, horses);
+  }
+}
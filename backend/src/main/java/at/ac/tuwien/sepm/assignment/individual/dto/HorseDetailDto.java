@@ -14,6 +14,8 @@ import java.time.LocalDate;
  * @param owner       owner of Horse represented as a OwnerDto
  * @param mother      Mother of this Horse represented as a HorseParentDto
  * @param father      Father of this Horse represented as a HorseParentDto
+ * @param version     version of the stored Horse, incremented on every update.
+ *                    If given for an update, the Horse is only updated if it still has this version
  */
 public record HorseDetailDto(
         Long id,
@@ -23,7 +25,8 @@ public record HorseDetailDto(
         Sex sex,
         OwnerDto owner,
         HorseParentDto mother,
-        HorseParentDto father
+        HorseParentDto father,
+        Long version
 ) {
   public HorseDetailDto withId(long newId) {
     return new HorseDetailDto(
@@ -34,10 +37,38 @@ public record HorseDetailDto(
             sex,
             owner,
             mother,
-            father
+            father,
+            version
     );
   }
 
+  public HorseDetailDto withVersion(Long newVersion) {
+    return new HorseDetailDto(
+            id,
+            name,
+            description,
+            dateOfBirth,
+            sex,
+            owner,
+            mother,
+            father,
+            newVersion
+    );
+  }
+
+  /**
+   * Get the revision of this detail, made of the versions of the horse, its owner and its parents.
+   *
+   * @return the revision of this detail
+   */
+  public HorseRevisionDto revision() {
+    return new HorseRevisionDto(
+            version,
+            owner == null ? null : owner.version(),
+            mother == null ? null : mother.version(),
+            father == null ? null : father.version());
+  }
+
   public Long ownerId() {
     return owner == null
             ? null
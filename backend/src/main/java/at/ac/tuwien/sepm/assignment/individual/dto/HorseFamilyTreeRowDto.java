@@ -0,0 +1,32 @@
+package at.ac.tuwien.sepm.assignment.individual.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.time.LocalDate;
+
+/**
+ * DTO representing a single Horse in a {@link HorseFamilyTreeTableDto}.
+ * Serialized as an array of its values, in the order of the parameters below,
+ * to keep the family tree compact.
+ *
+ * @param id          ID of Horse
+ * @param name        name of Horse
+ * @param dateOfBirth birthdate of Horse
+ * @param motherIdx   index of the row of the mother of this Horse, null if she is not part of the tree
+ * @param fatherIdx   index of the row of the father of this Horse, null if he is not part of the tree
+ * @param depth       generation of this Horse in the tree, 0 for the root horse,
+ *                    the smallest one if the horse appears several times in the tree
+ */
+@JsonFormat(shape = JsonFormat.Shape.ARRAY)
+@JsonPropertyOrder({"id", "name", "dateOfBirth", "motherIdx", "fatherIdx", "depth"})
+public record HorseFamilyTreeRowDto(
+        Long id,
+        String name,
+        // the array shape of the row would otherwise be applied to the date as well
+        @JsonFormat(shape = JsonFormat.Shape.STRING) LocalDate dateOfBirth,
+        Integer motherIdx,
+        Integer fatherIdx,
+        int depth
+) {
+}
@@ -0,0 +1,22 @@
+package at.ac.tuwien.sepm.assignment.individual.dto;
+
+import java.util.List;
+
+/**
+ * DTO representing the family tree of a single Horse as a flat table of its ancestors.
+ * Every ancestor is contained only once, parents are referenced by the index of their row,
+ * so the size of the table grows with the number of distinct ancestors only.
+ *
+ * @param columns names of the values of every row, in order
+ * @param horses  the root Horse, at index 0, followed by its ancestors ordered by their depth
+ */
+public record HorseFamilyTreeTableDto(
+        List<String> columns,
+        List<HorseFamilyTreeRowDto> horses
+) {
+  public static final List<String> COLUMNS = List.of("id", "name", "dateOfBirth", "motherIdx", "fatherIdx", "depth");
+
+  public HorseFamilyTreeTableDto(List<HorseFamilyTreeRowDto> horses) {
+    this(COLUMNS, horses);
+  }
+}
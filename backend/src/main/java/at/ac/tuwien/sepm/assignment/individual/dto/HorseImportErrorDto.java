@@ -0,0 +1,17 @@
+package at.ac.tuwien.sepm.assignment.individual.dto;
+
+import java.util.List;
+
+/**
+ * DTO reporting why a single row of a horse import was not imported
+ *
+ * @param line   line of the import the row starts at
+ * @param key    key of the row, null if it has none
+ * @param errors reading, validation and conflict errors of the row
+ */
+public record HorseImportErrorDto(
+        long line,
+        String key,
+        List<String> errors
+) {
+}
@@ -0,0 +1,23 @@
+package at.ac.tuwien.sepm.assignment.individual.dto;
+
+import java.util.List;
+
+/**
+ * DTO reporting the outcome of a horse import
+ *
+ * @param rowsRead number of rows read from the import
+ * @param imported number of horses created
+ * @param failed   number of rows not imported
+ * @param chunks   number of chunks the horses were created in, each in its own transaction
+ * @param errors   the errors of the rows not imported, limited to the first
+ *                 {@value at.ac.tuwien.sepm.assignment.individual.dto.HorseImportResultDto#MAX_REPORTED_ERRORS} rows
+ */
+public record HorseImportResultDto(
+        long rowsRead,
+        long imported,
+        long failed,
+        long chunks,
+        List<HorseImportErrorDto> errors
+) {
+  public static final int MAX_REPORTED_ERRORS = 1000;
+}
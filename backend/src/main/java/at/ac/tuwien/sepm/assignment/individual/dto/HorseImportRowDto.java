@@ -0,0 +1,40 @@
+package at.ac.tuwien.sepm.assignment.individual.dto;
+
+import at.ac.tuwien.sepm.assignment.individual.type.Sex;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTO representing a single row of a horse import.
+ * Parents are referenced either by the ID of a horse already stored in the system,
+ * or by the key of another row of the same import.
+ *
+ * @param line        line of the import the row starts at
+ * @param key         key of the row, by which other rows of the import can reference it as parent, may be null
+ * @param name        name of Horse
+ * @param description description of Horse
+ * @param dateOfBirth birthdate of Horse
+ * @param sex         sex of Horse
+ * @param ownerId     ID of the owner of Horse
+ * @param motherId    ID of the stored mother of Horse
+ * @param motherKey   key of the row of the mother of Horse
+ * @param fatherId    ID of the stored father of Horse
+ * @param fatherKey   key of the row of the father of Horse
+ * @param errors      errors reading the row, empty if the row could be read
+ */
+public record HorseImportRowDto(
+        long line,
+        String key,
+        String name,
+        String description,
+        LocalDate dateOfBirth,
+        Sex sex,
+        Long ownerId,
+        Long motherId,
+        String motherKey,
+        Long fatherId,
+        String fatherKey,
+        List<String> errors
+) {
+}
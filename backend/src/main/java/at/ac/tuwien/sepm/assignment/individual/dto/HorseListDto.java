@@ -6,10 +6,10 @@ import java.time.LocalDate;
 
 /**
  * Class for Horse DTOs
- * Contains all common properties
+ * Contains all common properties, the description is only loaded if it is requested
  *
  * @param name        name of Horse
- * @param description description of Horse
+ * @param description description of Horse, null unless it was requested
  * @param dateOfBirth birthdate of Horse
  * @param sex         sex of Horse
  * @param owner       owner of Horse represented as a OwnerDto
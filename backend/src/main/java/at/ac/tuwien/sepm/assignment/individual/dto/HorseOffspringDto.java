@@ -0,0 +1,23 @@
+package at.ac.tuwien.sepm.assignment.individual.dto;
+
+import at.ac.tuwien.sepm.assignment.individual.type.Sex;
+
+import java.time.LocalDate;
+
+/**
+ * DTO summarizing the children of a single Horse,
+ * as far as needed to validate changes to the horse against its children.
+ *
+ * @param sex                      sex of the Horse as currently stored in the system
+ * @param childCount               number of children of the Horse
+ * @param earliestChildDateOfBirth birthdate of the oldest child, null if the Horse has no children
+ */
+public record HorseOffspringDto(
+        Sex sex,
+        long childCount,
+        LocalDate earliestChildDateOfBirth
+) {
+  public boolean isParent() {
+    return childCount > 0;
+  }
+}
@@ -0,0 +1,15 @@
+package at.ac.tuwien.sepm.assignment.individual.dto;
+
+import java.util.List;
+
+/**
+ * DTO representing one page of a horse search
+ *
+ * @param horses the horses on this page, ordered by name and ID
+ * @param next   encoded {@link HorseCursor} to request the next page with, null if there are no more horses
+ */
+public record HorsePageDto(
+        List<HorseListDto> horses,
+        String next
+) {
+}
@@ -12,12 +12,14 @@ import java.time.LocalDate;
  * @param description description of Horse
  * @param dateOfBirth birthdate of Horse
  * @param sex         sex of Horse
+ * @param version     version of the stored Horse
  */
 public record HorseParentDto(
         Long id,
         String name,
         String description,
         LocalDate dateOfBirth,
-        Sex sex
+        Sex sex,
+        Long version
 ) {
 }
@@ -0,0 +1,49 @@
+package at.ac.tuwien.sepm.assignment.individual.dto;
+
+import at.ac.tuwien.sepm.assignment.individual.type.HorseField;
+
+import java.util.Set;
+
+/**
+ * The versions of everything the detail of a Horse is made of: the horse itself, its owner and its parents.
+ * The detail of a Horse is unchanged as long as its revision is.
+ *
+ * @param version       version of the Horse
+ * @param ownerVersion  version of the owner of the Horse, null if it has no owner
+ * @param motherVersion version of the mother of the Horse, null if it has no mother
+ * @param fatherVersion version of the father of the Horse, null if it has no father
+ */
+public record HorseRevisionDto(
+        long version,
+        Long ownerVersion,
+        Long motherVersion,
+        Long fatherVersion
+) {
+  /**
+   * Get the revision as an opaque tag, that is only equal to the tag of the same revision.
+   *
+   * @return the tag of the revision
+   */
+  public String tag() {
+    return version + "." + part(ownerVersion) + "." + part(motherVersion) + "." + part(fatherVersion);
+  }
+
+  /**
+   * Get the revision of only the given fields of the detail of a Horse.
+   * The version of the Horse itself is always part of it.
+   *
+   * @param fields the fields of the detail
+   * @return the revision without the versions of the owner and parents, that are not part of {@code fields}
+   */
+  public HorseRevisionDto restrictTo(Set<HorseField> fields) {
+    return new HorseRevisionDto(
+            version,
+            fields.contains(HorseField.OWNER) ? ownerVersion : null,
+            fields.contains(HorseField.MOTHER) ? motherVersion : null,
+            fields.contains(HorseField.FATHER) ? fatherVersion : null);
+  }
+
+  private static String part(Long version) {
+    return version == null ? "" : version.toString();
+  }
+}
@@ -15,6 +15,8 @@ import java.time.LocalDate;
  * @param sex         sex of horse
  * @param ownerName   substring of Owners name
  * @param limit       maximum number of horses to return
+ * @param pageSize    number of horses per page, enables keyset pagination ordered by name and ID
+ * @param cursor      encoded {@link HorseCursor} of the page to return, null for the first page
  */
 public record HorseSearchDto(
         String name,
@@ -23,6 +25,16 @@ public record HorseSearchDto(
         LocalDate bornBefore,
         Sex sex,
         String ownerName,
-        Integer limit //if this is null every matching horse is returned
+        Integer limit, //if this is null every matching horse is returned
+        Integer pageSize,
+        String cursor
 ) {
+  /**
+   * Whether keyset pagination is requested.
+   *
+   * @return true iff a page size or a cursor is given
+   */
+  public boolean isPaged() {
+    return pageSize != null || cursor != null;
+  }
 }
@@ -0,0 +1,28 @@
+package at.ac.tuwien.sepm.assignment.individual.dto;
+
+import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+
+import java.time.LocalDate;
+
+/**
+ * DTO representing the family tree of a single Horse like {@link HorseFamilyTreeDto},
+ * but every ancestor is serialized in full only the first time it appears in the tree.
+ * Every further appearance of the same ancestor (e.g. in case of linebreeding) is serialized as its ID only,
+ * so the size of the tree stays linear in the number of distinct ancestors.
+ *
+ * @param id          ID of Horse, used to reference it on further appearances
+ * @param name        name of Horse
+ * @param dateOfBirth birthdate of Horse
+ * @param mother      Mother of this Horse represented recursively, or by her ID if she already appeared
+ * @param father      Father of this Horse represented recursively, or by his ID if he already appeared
+ */
+@JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
+public record HorseSharedFamilyTreeDto(
+        Long id,
+        String name,
+        LocalDate dateOfBirth,
+        HorseSharedFamilyTreeDto mother,
+        HorseSharedFamilyTreeDto father
+) {
+}
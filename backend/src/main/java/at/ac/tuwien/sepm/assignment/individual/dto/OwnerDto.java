@@ -7,11 +7,13 @@ package at.ac.tuwien.sepm.assignment.individual.dto;
  * @param firstName first Name of owner
  * @param lastName  last Name of owner
  * @param email     email of Owner
+ * @param version   version of the stored owner
  */
 public record OwnerDto(
         long id,
         String firstName,
         String lastName,
-        String email
+        String email,
+        Long version
 ) {
 }
@@ -16,6 +16,7 @@ public class Horse {
   private Long ownerId;
   private Long motherId;
   private Long fatherId;
+  private long version;
 
   public Long getId() {
     return id;
@@ -90,6 +91,15 @@ public class Horse {
     return this;
   }
 
+  public long getVersion() {
+    return version;
+  }
+
+  public Horse setVersion(long version) {
+    this.version = version;
+    return this;
+  }
+
   @Override
   public String toString() {
     return "Horse{"
@@ -101,6 +111,7 @@ public class Horse {
             + ", ownerId=" + ownerId
             + ", motherId=" + motherId
             + ", fatherId=" + fatherId
+            + ", version=" + version
             + '}';
   }
 }
@@ -0,0 +1,65 @@
+package at.ac.tuwien.sepm.assignment.individual.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes an export as CSV according to RFC 4180, with a header line of the column names.
+ * Values containing a separator, quote or line break are quoted, empty values stand for {@code null}.
+ */
+public class CsvExportWriter implements ExportWriter {
+  private static final String LINE_SEPARATOR = "\r\n";
+
+  private final Writer writer;
+
+  public CsvExportWriter(OutputStream out) {
+    this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public void start(List<String> columns) throws IOException {
+    writeLine(columns.toArray());
+  }
+
+  @Override
+  public void row(Object[] values) throws IOException {
+    writeLine(values);
+  }
+
+  @Override
+  public void close() throws IOException {
+    writer.flush();
+  }
+
+  private void writeLine(Object[] values) throws IOException {
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        writer.write(',');
+      }
+      if (values[i] != null) {
+        writeValue(values[i].toString());
+      }
+    }
+    writer.write(LINE_SEPARATOR);
+  }
+
+  private void writeValue(String value) throws IOException {
+    boolean quote = false;
+    for (int i = 0; i < value.length() && !quote; i++) {
+      char c = value.charAt(i);
+      quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+    }
+    if (!quote) {
+      writer.write(value);
+      return;
+    }
+    writer.write('"');
+    writer.write(value.replace("\"", "\"\""));
+    writer.write('"');
+  }
+}
@@ -0,0 +1,36 @@
+package at.ac.tuwien.sepm.assignment.individual.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes rows of an export one at a time, without keeping any of them in memory.
+ * Values are {@code null}, {@link Number}s, {@link String}s or {@link java.time.LocalDate}s.
+ */
+public interface ExportWriter extends Closeable {
+
+  /**
+   * Start the export. Has to be called once, before the first row.
+   *
+   * @param columns names of the columns, in the order of the values of every row
+   * @throws IOException if writing to the underlying stream fails
+   */
+  void start(List<String> columns) throws IOException;
+
+  /**
+   * Write a single row.
+   *
+   * @param values the values of the row, in the order of the columns
+   * @throws IOException if writing to the underlying stream fails
+   */
+  void row(Object[] values) throws IOException;
+
+  /**
+   * Finish the export and flush everything written, without closing the underlying stream.
+   *
+   * @throws IOException if writing to the underlying stream fails
+   */
+  @Override
+  void close() throws IOException;
+}
@@ -0,0 +1,35 @@
+package at.ac.tuwien.sepm.assignment.individual.export;
+
+import at.ac.tuwien.sepm.assignment.individual.type.ExportFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Creates the {@link ExportWriter} for an {@link ExportFormat}.
+ */
+@Component
+public class ExportWriterFactory {
+  private final ObjectMapper objectMapper;
+
+  public ExportWriterFactory(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Create a writer for the given format.
+   *
+   * @param format the format to write
+   * @param out    the stream to write to, it is not closed by the writer
+   * @return the writer
+   * @throws IOException if the writer cannot be created on the stream
+   */
+  public ExportWriter create(ExportFormat format, OutputStream out) throws IOException {
+    return switch (format) {
+      case CSV -> new CsvExportWriter(out);
+      case NDJSON -> new NdjsonExportWriter(objectMapper.getFactory(), out);
+    };
+  }
+}
@@ -0,0 +1,54 @@
+package at.ac.tuwien.sepm.assignment.individual.export;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writes an export as newline delimited JSON, one object per row with the column names as keys.
+ * The rows are written by a streaming generator, so no tree or DTO is built for them.
+ */
+public class NdjsonExportWriter implements ExportWriter {
+
+  private final JsonGenerator generator;
+  private List<String> columns;
+
+  public NdjsonExportWriter(JsonFactory factory, OutputStream out) throws IOException {
+    this.generator = factory.createGenerator(out, JsonEncoding.UTF8)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+  }
+
+  @Override
+  public void start(List<String> columns) {
+    this.columns = columns;
+  }
+
+  @Override
+  public void row(Object[] values) throws IOException {
+    generator.writeStartObject();
+    for (int i = 0; i < values.length; i++) {
+      generator.writeFieldName(columns.get(i));
+      Object value = values[i];
+      if (value == null) {
+        generator.writeNull();
+      } else if (value instanceof Long number) {
+        generator.writeNumber(number);
+      } else if (value instanceof Integer number) {
+        generator.writeNumber(number);
+      } else {
+        generator.writeString(value.toString());
+      }
+    }
+    generator.writeEndObject();
+    generator.writeRaw('\n');
+  }
+
+  @Override
+  public void close() throws IOException {
+    generator.close();
+  }
+}
@@ -1,9 +1,13 @@
 package at.ac.tuwien.sepm.assignment.individual.mapper;
 
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseDescendantsDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseDetailDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseFamilyTreeDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseFamilyTreeRowDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseFamilyTreeTableDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseListDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseParentDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseSharedFamilyTreeDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.OwnerDto;
 import at.ac.tuwien.sepm.assignment.individual.entity.Horse;
 import at.ac.tuwien.sepm.assignment.individual.exception.FatalException;
@@ -12,9 +16,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
 
 /**
  * Mapper for all Horse related Objects
@@ -80,7 +87,8 @@ public class HorseMapper {
             horse.getSex(),
             getOwner(horse, owners),
             getMother(horse, mothers),
-            getFather(horse, fathers)
+            getFather(horse, fathers),
+            horse.getVersion()
     );
   }
 
@@ -97,37 +105,226 @@ public class HorseMapper {
             detailDto.name(),
             detailDto.description(),
             detailDto.dateOfBirth(),
-            detailDto.sex()
+            detailDto.sex(),
+            detailDto.version()
+    );
+  }
+
+  /**
+   * Convert a horse entity object to a {@link HorseParentDto}.
+   *
+   * @param horse the horse to convert
+   * @return the converted {@link HorseParentDto}
+   */
+  public HorseParentDto entityToParentDto(Horse horse) {
+    LOG.trace("entityToParentDto({})", horse);
+    if (horse == null) {
+      return null;
+    }
+    return new HorseParentDto(
+            horse.getId(),
+            horse.getName(),
+            horse.getDescription(),
+            horse.getDateOfBirth(),
+            horse.getSex(),
+            horse.getVersion()
     );
   }
 
   /**
    * Convert a List of {@link Horse} representing the family tree of one specific horse, with id, to
    * one {@link HorseFamilyTreeDto}.
+   * Every ancestor is converted only once, ancestors appearing several times in the tree share the same node.
    *
    * @param id     id of the root horse of the family tree
    * @param horses horses of all the ancestors of Horse with id
    * @return returns a Single {@link HorseFamilyTreeDto} representing the family Tree of the root Horse
    */
   public HorseFamilyTreeDto entityToFamilyTreeDto(Long id, List<Horse> horses) {
-    LOG.trace("entityToFamilyTreeDto({},{})", id, horses);
-    HorseFamilyTreeDto horse = null;
+    LOG.trace("entityToFamilyTreeDto({},{})", id, horses.size());
+    return new TreeBuilder<HorseFamilyTreeDto>(horses, (horse, mother, father) -> new HorseFamilyTreeDto(
+            horse.getId(),
+            horse.getName(),
+            horse.getDateOfBirth(),
+            mother,
+            father
+    )).build(id);
+  }
+
+  /**
+   * Convert a List of {@link Horse} representing the family tree of one specific horse, with id, to
+   * one {@link HorseSharedFamilyTreeDto}, which serializes ancestors appearing several times in the tree
+   * only once.
+   *
+   * @param id     id of the root horse of the family tree
+   * @param horses horses of all the ancestors of Horse with id
+   * @return returns a Single {@link HorseSharedFamilyTreeDto} representing the family Tree of the root Horse
+   */
+  public HorseSharedFamilyTreeDto entityToSharedFamilyTreeDto(Long id, List<Horse> horses) {
+    LOG.trace("entityToSharedFamilyTreeDto({},{})", id, horses.size());
+    return new TreeBuilder<HorseSharedFamilyTreeDto>(horses, (horse, mother, father) -> new HorseSharedFamilyTreeDto(
+            horse.getId(),
+            horse.getName(),
+            horse.getDateOfBirth(),
+            mother,
+            father
+    )).build(id);
+  }
+
+  /**
+   * Convert a List of {@link Horse} representing the family tree of one specific horse, with id, to
+   * one {@link HorseFamilyTreeTableDto}.
+   * The rows are ordered breadth first, starting with the root horse,
+   * so every horse is listed with the smallest depth it appears at in the tree.
+   *
+   * @param id     id of the root horse of the family tree
+   * @param horses horses of all the ancestors of Horse with id
+   * @return returns a Single {@link HorseFamilyTreeTableDto} representing the family Tree of the root Horse
+   */
+  public HorseFamilyTreeTableDto entityToFamilyTreeTableDto(Long id, List<Horse> horses) {
+    LOG.trace("entityToFamilyTreeTableDto({},{})", id, horses.size());
+    Map<Long, Horse> horsesById = new HashMap<>(horses.size() * 2);
+    for (Horse horse : horses) {
+      horsesById.put(horse.getId(), horse);
+    }
+    List<HorseFamilyTreeRowDto> rows = new ArrayList<>(horses.size());
+    if (!horsesById.containsKey(id)) {
+      return new HorseFamilyTreeTableDto(rows);
+    }
+
+    // first assign every horse its row, then the parents' rows are known when creating the rows
+    Map<Long, Integer> indexes = new HashMap<>(horses.size() * 2);
+    List<Horse> ordered = new ArrayList<>(horses.size());
+    List<Integer> depths = new ArrayList<>(horses.size());
+    indexes.put(id, 0);
+    ordered.add(horsesById.get(id));
+    depths.add(0);
+    for (int i = 0; i < ordered.size(); i++) {
+      Horse horse = ordered.get(i);
+      for (Long parentId : new Long[] {horse.getMotherId(), horse.getFatherId()}) {
+        if (parentId != null && horsesById.containsKey(parentId) && !indexes.containsKey(parentId)) {
+          indexes.put(parentId, ordered.size());
+          ordered.add(horsesById.get(parentId));
+          depths.add(depths.get(i) + 1);
+        }
+      }
+    }
+    for (int i = 0; i < ordered.size(); i++) {
+      Horse horse = ordered.get(i);
+      rows.add(new HorseFamilyTreeRowDto(
+              horse.getId(),
+              horse.getName(),
+              horse.getDateOfBirth(),
+              horse.getMotherId() == null ? null : indexes.get(horse.getMotherId()),
+              horse.getFatherId() == null ? null : indexes.get(horse.getFatherId()),
+              depths.get(i)
+      ));
+    }
+    return new HorseFamilyTreeTableDto(rows);
+  }
+
+  /**
+   * Convert a List of {@link Horse} representing the descendants of one specific horse to
+   * one {@link HorseDescendantsDto}.
+   *
+   * @param horses the root horse followed by its descendants, ordered by generation
+   * @return returns a Single {@link HorseDescendantsDto} representing the progeny of the root Horse
+   */
+  public HorseDescendantsDto entityToDescendantsDto(List<Horse> horses) {
+    LOG.trace("entityToDescendantsDto({})", horses.size());
+    Map<Long, Integer> indexes = new HashMap<>(horses.size() * 2);
+    for (int i = 0; i < horses.size(); i++) {
+      indexes.put(horses.get(i).getId(), i);
+    }
+    List<HorseFamilyTreeRowDto> rows = new ArrayList<>(horses.size());
+    List<Integer> generationCounts = new ArrayList<>();
     for (int i = 0; i < horses.size(); i++) {
-      if (Objects.equals(horses.get(i).getId(), id)) {
-        horse = new HorseFamilyTreeDto(
-                horses.get(i).getId(),
-                horses.get(i).getName(),
-                horses.get(i).getDateOfBirth(),
-                horses.get(i).getMotherId() != null
-                        ? entityToFamilyTreeDto(horses.get(i).getMotherId(), horses)
-                        : null,
-                horses.get(i).getFatherId() != null
-                        ? entityToFamilyTreeDto(horses.get(i).getFatherId(), horses)
-                        : null
-        );
+      Horse horse = horses.get(i);
+      Integer motherIdx = horse.getMotherId() == null ? null : indexes.get(horse.getMotherId());
+      Integer fatherIdx = horse.getFatherId() == null ? null : indexes.get(horse.getFatherId());
+      // the horses are ordered by generation, so the parent a horse was found through comes first
+      int depth = 0;
+      if (i > 0) {
+        depth = Integer.MAX_VALUE;
+        if (motherIdx != null && motherIdx < i) {
+          depth = rows.get(motherIdx).depth() + 1;
+        }
+        if (fatherIdx != null && fatherIdx < i) {
+          depth = Math.min(depth, rows.get(fatherIdx).depth() + 1);
+        }
+        if (generationCounts.size() < depth) {
+          generationCounts.add(0);
+        }
+        generationCounts.set(depth - 1, generationCounts.get(depth - 1) + 1);
+      }
+      rows.add(new HorseFamilyTreeRowDto(
+              horse.getId(),
+              horse.getName(),
+              horse.getDateOfBirth(),
+              motherIdx,
+              fatherIdx,
+              depth
+      ));
+    }
+    return new HorseDescendantsDto(generationCounts, rows);
+  }
+
+  /**
+   * Creates a single node of a family tree from a horse and the already created nodes of its parents.
+   *
+   * @param <T> type of the tree nodes
+   */
+  @FunctionalInterface
+  private interface TreeNodeFactory<T> {
+    T create(Horse horse, T mother, T father);
+  }
+
+  /**
+   * Assembles a family tree from the horses of the tree in time linear in the number of horses.
+   * The horses are indexed by ID once and every horse is turned into a node once,
+   * a horse appearing several times in the tree is represented by the same node every time.
+   *
+   * @param <T> type of the tree nodes
+   */
+  private static class TreeBuilder<T> {
+    private final Map<Long, Horse> horsesById;
+    private final Map<Long, T> nodes = new HashMap<>();
+    private final Set<Long> inProgress = new HashSet<>();
+    private final TreeNodeFactory<T> factory;
+
+    TreeBuilder(List<Horse> horses, TreeNodeFactory<T> factory) {
+      this.horsesById = new HashMap<>(horses.size() * 2);
+      for (Horse horse : horses) {
+        horsesById.put(horse.getId(), horse);
+      }
+      this.factory = factory;
+    }
+
+    /**
+     * Build the node of the horse with the given ID, with its ancestors.
+     * Parents missing from the horses of the tree are left out.
+     *
+     * @param id id of the horse
+     * @return the node of the horse, or null if there is no horse with this ID in the tree
+     */
+    T build(Long id) {
+      if (id == null) {
+        return null;
+      }
+      T existing = nodes.get(id);
+      if (existing != null) {
+        return existing;
+      }
+      Horse horse = horsesById.get(id);
+      // a horse being its own ancestor cannot happen with valid data, leave out the parent instead of looping
+      if (horse == null || !inProgress.add(id)) {
+        return null;
       }
+      T node = factory.create(horse, build(horse.getMotherId()), build(horse.getFatherId()));
+      inProgress.remove(id);
+      nodes.put(id, node);
+      return node;
     }
-    return horse;
   }
 
   /**
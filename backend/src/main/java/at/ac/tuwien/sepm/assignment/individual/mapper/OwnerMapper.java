@@ -30,6 +30,7 @@ public class OwnerMapper {
             owner.getId(),
             owner.getFirstName(),
             owner.getLastName(),
-            owner.getEmail());
+            owner.getEmail(),
+            owner.getVersion());
   }
 }
@@ -0,0 +1,25 @@
+package at.ac.tuwien.sepm.assignment.individual.metrics;
+
+import at.ac.tuwien.sepm.assignment.individual.persistence.impl.OwnerCache;
+import at.ac.tuwien.sepm.assignment.individual.service.impl.FamilyTreeCache;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the statistics of the caches of the application as metrics.
+ */
+@Component
+public class CacheMetrics {
+
+  public CacheMetrics(MetricsRegistry metrics, OwnerCache ownerCache, FamilyTreeCache familyTreeCache) {
+    metrics.counter("owner_cache_hits_total", "Lookups of owners answered by the owner cache",
+            () -> ownerCache.stats().hits());
+    metrics.counter("owner_cache_misses_total", "Lookups of owners not answered by the owner cache",
+            () -> ownerCache.stats().misses());
+    metrics.counter("owner_cache_evictions_total", "Owners evicted from the owner cache because it was full",
+            () -> ownerCache.stats().evictions());
+    metrics.gauge("owner_cache_size", "Owners currently held by the owner cache",
+            () -> ownerCache.stats().size());
+    metrics.gauge("family_tree_cache_size", "Family trees currently held by the family tree cache",
+            familyTreeCache::size);
+  }
+}
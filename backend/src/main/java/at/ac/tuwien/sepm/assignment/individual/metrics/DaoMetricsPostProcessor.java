@@ -0,0 +1,47 @@
+package at.ac.tuwien.sepm.assignment.individual.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Times every call of a method of a DAO, that is a bean annotated with {@link Repository},
+ * by wrapping it in a proxy of its interfaces, which records the calls in the {@link MetricsRegistry}.
+ * Methods returning a stream are timed until the stream is returned, not until it is consumed.
+ */
+@Component
+public class DaoMetricsPostProcessor implements BeanPostProcessor {
+  // looked up lazily, so the registry itself is processed by all post processors
+  private final ObjectProvider<MetricsRegistry> metrics;
+
+  public DaoMetricsPostProcessor(ObjectProvider<MetricsRegistry> metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    Class<?> type = AopProxyUtils.ultimateTargetClass(bean);
+    if (AnnotationUtils.findAnnotation(type, Repository.class) == null || type.getInterfaces().length == 0) {
+      return bean;
+    }
+    String dao = type.getSimpleName();
+    ProxyFactory proxyFactory = new ProxyFactory(bean);
+    proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+      boolean failed = true;
+      long start = System.nanoTime();
+      try {
+        Object result = invocation.proceed();
+        failed = false;
+        return result;
+      } finally {
+        metrics.getObject().recordDaoCall(dao, invocation.getMethod().getName(), System.nanoTime() - start, failed);
+      }
+    });
+    return proxyFactory.getProxy(bean.getClass().getClassLoader());
+  }
+}
@@ -0,0 +1,114 @@
+package at.ac.tuwien.sepm.assignment.individual.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies with a bounded relative error, in the style of an HDR histogram.
+ * <p>
+ * Latencies are recorded in microseconds. Every power of two is split into {@value SUB_BUCKETS} linear buckets,
+ * so a reported percentile is at most about 6% larger than the recorded latency,
+ * no matter if it is a few microseconds or several minutes.
+ * Recording only increments counters, so it is cheap enough to be done for every request.
+ * </p>
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  // values up to 2^40 µs, about 12 days, larger ones are counted in the last bucket
+  private static final int MAX_SHIFT = 40 - SUB_BUCKET_BITS;
+  private static final int BUCKET_COUNT = (MAX_SHIFT + 2) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sumMicros = new LongAdder();
+  private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Record a single latency.
+   *
+   * @param nanos the latency in nanoseconds
+   */
+  public void record(long nanos) {
+    long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+    buckets.incrementAndGet(bucketOf(micros));
+    count.increment();
+    sumMicros.add(micros);
+    maxMicros.accumulate(micros);
+  }
+
+  /**
+   * Get the number of recorded latencies.
+   *
+   * @return the number of recorded latencies
+   */
+  public long count() {
+    return count.sum();
+  }
+
+  /**
+   * Get the sum of all recorded latencies.
+   *
+   * @return the sum in seconds
+   */
+  public double sumSeconds() {
+    return sumMicros.sum() / 1e6;
+  }
+
+  /**
+   * Get the largest recorded latency.
+   *
+   * @return the largest latency in seconds
+   */
+  public double maxSeconds() {
+    return maxMicros.get() / 1e6;
+  }
+
+  /**
+   * Get the latency that {@code quantile} of all recorded latencies do not exceed.
+   * As latencies may be recorded concurrently, the result is only approximate while they are.
+   *
+   * @param quantile the quantile, between 0 and 1
+   * @return the upper bound of the bucket containing the quantile in seconds, 0 if nothing has been recorded
+   */
+  public double quantileSeconds(double quantile) {
+    long total = 0;
+    long[] counts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets.get(i);
+      total += counts[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(quantile * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(upperBoundOf(i), maxMicros.get()) / 1e6;
+      }
+    }
+    return maxSeconds();
+  }
+
+  static int bucketOf(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) micros;
+    }
+    int shift = Math.min(63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS, MAX_SHIFT);
+    long subBucket = Math.min(micros >> shift, 2L * SUB_BUCKETS - 1) - SUB_BUCKETS;
+    return (shift + 1) * SUB_BUCKETS + (int) subBucket;
+  }
+
+  static long upperBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    long subBucket = bucket % SUB_BUCKETS;
+    return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+  }
+}
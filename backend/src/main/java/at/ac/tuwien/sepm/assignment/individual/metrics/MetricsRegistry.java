@@ -0,0 +1,168 @@
+package at.ac.tuwien.sepm.assignment.individual.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * Collects the metrics of the application and renders them in the Prometheus text format.
+ * <p>
+ * The latency of every HTTP request is recorded by route, that is the path template of its handler,
+ * together with the method and the status of the response.
+ * The latency of every call of a DAO method is recorded by DAO and method, failed calls are counted as well.
+ * Further values, like the statistics of caches, are registered as gauges or counters and read on every scrape.
+ * </p>
+ */
+@Component
+public class MetricsRegistry {
+  /**
+   * Route of requests not handled by any handler, so unknown paths do not create a metric each.
+   */
+  public static final String UNMATCHED_ROUTE = "UNMATCHED";
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+  private static final String HTTP_REQUESTS = "http_server_requests_seconds";
+  private static final String DAO_CALLS = "dao_calls_seconds";
+  private static final String DAO_ERRORS = "dao_call_errors_total";
+
+  private final Map<RequestKey, LatencyHistogram> requests = new ConcurrentHashMap<>();
+  private final Map<DaoKey, LatencyHistogram> daoCalls = new ConcurrentHashMap<>();
+  private final Map<DaoKey, LongAdder> daoErrors = new ConcurrentHashMap<>();
+  private final Map<String, Sampled> sampled = new ConcurrentSkipListMap<>();
+
+  private record RequestKey(String method, String route, int status) {
+    String labels() {
+      return "method=\"%s\",route=\"%s\",status=\"%d\"".formatted(escape(method), escape(route), status);
+    }
+  }
+
+  private record DaoKey(String dao, String method) {
+    String labels() {
+      return "dao=\"%s\",method=\"%s\"".formatted(escape(dao), escape(method));
+    }
+  }
+
+  private record Sampled(String type, String help, DoubleSupplier value) {
+  }
+
+  /**
+   * Record the latency of an HTTP request.
+   *
+   * @param method the HTTP method of the request
+   * @param route  the path template of the handler of the request, or {@link #UNMATCHED_ROUTE}
+   * @param status the status of the response
+   * @param nanos  the latency in nanoseconds
+   */
+  public void recordRequest(String method, String route, int status, long nanos) {
+    requests.computeIfAbsent(new RequestKey(method, route, status), key -> new LatencyHistogram()).record(nanos);
+  }
+
+  /**
+   * Record the latency of a call of a DAO method.
+   *
+   * @param dao    the name of the DAO
+   * @param method the name of the method
+   * @param nanos  the latency in nanoseconds
+   * @param failed whether the call threw an exception
+   */
+  public void recordDaoCall(String dao, String method, long nanos, boolean failed) {
+    DaoKey key = new DaoKey(dao, method);
+    daoCalls.computeIfAbsent(key, k -> new LatencyHistogram()).record(nanos);
+    if (failed) {
+      daoErrors.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+  }
+
+  /**
+   * Register a value that may go up and down, read whenever the metrics are scraped.
+   *
+   * @param name  the name of the metric
+   * @param help  the description of the metric
+   * @param value supplies the current value
+   */
+  public void gauge(String name, String help, DoubleSupplier value) {
+    LOG.trace("gauge({})", name);
+    sampled.put(name, new Sampled("gauge", help, value));
+  }
+
+  /**
+   * Register a value that only goes up, read whenever the metrics are scraped.
+   *
+   * @param name  the name of the metric, which should end with {@code _total}
+   * @param help  the description of the metric
+   * @param value supplies the current value
+   */
+  public void counter(String name, String help, DoubleSupplier value) {
+    LOG.trace("counter({})", name);
+    sampled.put(name, new Sampled("counter", help, value));
+  }
+
+  /**
+   * Render all metrics in the Prometheus text exposition format, version 0.0.4.
+   *
+   * @return the metrics
+   */
+  public String scrape() {
+    LOG.trace("scrape()");
+    StringBuilder out = new StringBuilder();
+    writeSummaries(out, HTTP_REQUESTS, "Latency of HTTP requests by route, method and status",
+            requests, Comparator.comparing(RequestKey::route).thenComparing(RequestKey::method)
+                    .thenComparingInt(RequestKey::status), RequestKey::labels);
+    writeSummaries(out, DAO_CALLS, "Latency of calls of DAO methods",
+            daoCalls, Comparator.comparing(DaoKey::dao).thenComparing(DaoKey::method), DaoKey::labels);
+    header(out, DAO_ERRORS, "counter", "Calls of DAO methods that threw an exception");
+    daoErrors.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey(Comparator.comparing(DaoKey::dao).thenComparing(DaoKey::method)))
+            .forEach(entry -> sample(out, DAO_ERRORS, entry.getKey().labels(), entry.getValue().sum()));
+    sampled.forEach((name, metric) -> {
+      header(out, name, metric.type(), metric.help());
+      sample(out, name, "", metric.value().getAsDouble());
+    });
+    return out.toString();
+  }
+
+  private static <K> void writeSummaries(StringBuilder out, String name, String help, Map<K, LatencyHistogram> histograms,
+                                         Comparator<K> order, Function<K, String> labels) {
+    var entries = histograms.entrySet().stream().sorted(Map.Entry.comparingByKey(order)).toList();
+    header(out, name, "summary", help);
+    for (var entry : entries) {
+      String keyLabels = labels.apply(entry.getKey());
+      LatencyHistogram histogram = entry.getValue();
+      for (double quantile : QUANTILES) {
+        sample(out, name, keyLabels + ",quantile=\"" + quantile + "\"", histogram.quantileSeconds(quantile));
+      }
+      sample(out, name + "_count", keyLabels, histogram.count());
+      sample(out, name + "_sum", keyLabels, histogram.sumSeconds());
+    }
+    header(out, name + "_max", "gauge", help + ", maximum since start");
+    for (var entry : entries) {
+      sample(out, name + "_max", labels.apply(entry.getKey()), entry.getValue().maxSeconds());
+    }
+  }
+
+  private static void header(StringBuilder out, String name, String type, String help) {
+    out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  private static void sample(StringBuilder out, String name, String labels, double value) {
+    out.append(name);
+    if (!labels.isEmpty()) {
+      out.append('{').append(labels).append('}');
+    }
+    out.append(' ').append(value).append('\n');
+  }
+
+  private static String escape(String labelValue) {
+    return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+}
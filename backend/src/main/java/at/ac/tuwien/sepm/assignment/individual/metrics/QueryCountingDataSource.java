@@ -0,0 +1,114 @@
+package at.ac.tuwien.sepm.assignment.individual.metrics;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Wraps a {@link DataSource}, so every statement executed on its connections
+ * and every row fetched from their results is counted in the {@link QueryStats} of the current thread.
+ * Without statistics on the current thread, calls are passed on unchanged.
+ */
+public final class QueryCountingDataSource {
+  private static final String BATCH_SHAPE = "BATCH";
+
+  private QueryCountingDataSource() {
+  }
+
+  /**
+   * Wrap a data source.
+   *
+   * @param target the data source to wrap
+   * @return a data source counting the statements executed on {@code target}
+   */
+  public static DataSource wrap(DataSource target) {
+    // keep the pool closeable, so it is closed with the application context
+    Class<?>[] extraTypes = target instanceof Closeable ? new Class<?>[]{Closeable.class} : new Class<?>[0];
+    return proxy(DataSource.class, target, extraTypes, (method, args) -> {
+      Object result = invoke(target, method, args);
+      return result instanceof Connection connection ? connection(connection) : result;
+    });
+  }
+
+  private static Connection connection(Connection target) {
+    return proxy(Connection.class, target, new Class<?>[0], (method, args) -> {
+      Object result = invoke(target, method, args);
+      if (result instanceof Statement statement) {
+        String shape = method.getName().startsWith("prepare") ? QueryStats.shape((String) args[0]) : null;
+        return statement(method.getReturnType().asSubclass(Statement.class), statement, shape);
+      }
+      return result;
+    });
+  }
+
+  private static <T extends Statement> T statement(Class<T> type, Statement target, String preparedShape) {
+    return proxy(type, target, new Class<?>[0], (method, args) -> {
+      QueryStats stats = QueryStats.current();
+      Object result;
+      if (stats != null && method.getName().startsWith("execute")) {
+        long start = System.nanoTime();
+        try {
+          result = invoke(target, method, args);
+        } finally {
+          String shape = preparedShape;
+          if (shape == null) {
+            shape = args != null && args.length > 0 && args[0] instanceof String sql ? QueryStats.shape(sql) : BATCH_SHAPE;
+          }
+          stats.statement(shape, System.nanoTime() - start);
+        }
+      } else {
+        result = invoke(target, method, args);
+      }
+      return result instanceof ResultSet resultSet ? resultSet(resultSet) : result;
+    });
+  }
+
+  private static ResultSet resultSet(ResultSet target) {
+    return proxy(ResultSet.class, target, new Class<?>[0], (method, args) -> {
+      QueryStats stats = QueryStats.current();
+      if (stats == null || !method.getName().equals("next")) {
+        return invoke(target, method, args);
+      }
+      long start = System.nanoTime();
+      boolean row = (Boolean) invoke(target, method, args);
+      stats.fetch(row, System.nanoTime() - start);
+      return row;
+    });
+  }
+
+  @FunctionalInterface
+  private interface Handler {
+    Object handle(Method method, Object[] args) throws Throwable;
+  }
+
+  private static <T> T proxy(Class<T> type, Object target, Class<?>[] extraTypes, Handler handler) {
+    InvocationHandler invocationHandler = (proxy, method, args) -> {
+      if (method.getDeclaringClass() == Object.class) {
+        return switch (method.getName()) {
+          case "equals" -> proxy == args[0];
+          case "hashCode" -> System.identityHashCode(proxy);
+          default -> invoke(target, method, args);
+        };
+      }
+      return handler.handle(method, args);
+    };
+    Class<?>[] types = new Class<?>[extraTypes.length + 1];
+    types[0] = type;
+    System.arraycopy(extraTypes, 0, types, 1, extraTypes.length);
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), types, invocationHandler));
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+}
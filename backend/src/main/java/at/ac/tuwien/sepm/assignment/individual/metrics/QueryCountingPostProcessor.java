@@ -0,0 +1,19 @@
+package at.ac.tuwien.sepm.assignment.individual.metrics;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps every {@link DataSource} of the application with a {@link QueryCountingDataSource},
+ * so the statements executed while handling a request can be counted.
+ */
+@Component
+public class QueryCountingPostProcessor implements BeanPostProcessor {
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    return bean instanceof DataSource dataSource ? QueryCountingDataSource.wrap(dataSource) : bean;
+  }
+}
@@ -0,0 +1,121 @@
+package at.ac.tuwien.sepm.assignment.individual.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Statistics of the JDBC statements executed by one thread while handling a request:
+ * the number of statements, the number of rows fetched and the time spent in the database.
+ * <p>
+ * Statements are also counted by their shape, that is their SQL with all literals and parameter lists collapsed,
+ * so a statement executed over and over for different values, like a query per element of a list,
+ * shows up as one shape executed many times.
+ * </p>
+ * Only statements executed through the {@link QueryCountingDataSource} on the thread that
+ * {@link #start() started} the statistics are counted.
+ */
+public final class QueryStats {
+  private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+  private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+  private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+  private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+
+  private int statements;
+  private long rows;
+  private long nanos;
+  private final Map<String, Integer> shapes = new HashMap<>();
+
+  private QueryStats() {
+  }
+
+  /**
+   * Start collecting statistics on the current thread, replacing any statistics collected before.
+   *
+   * @return the new statistics
+   */
+  public static QueryStats start() {
+    QueryStats stats = new QueryStats();
+    CURRENT.set(stats);
+    return stats;
+  }
+
+  /**
+   * Get the statistics collected on the current thread.
+   *
+   * @return the statistics, null if none are collected
+   */
+  public static QueryStats current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Stop collecting statistics on the current thread.
+   */
+  public static void stop() {
+    CURRENT.remove();
+  }
+
+  /**
+   * Get the shape of a statement, with all literals and lists of parameters replaced by a single parameter.
+   *
+   * @param sql the SQL of the statement
+   * @return the shape of the statement
+   */
+  public static String shape(String sql) {
+    String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+    shape = STRING_LITERAL.matcher(shape).replaceAll("?");
+    shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+    return PARAMETER_LIST.matcher(shape).replaceAll("(?)");
+  }
+
+  void statement(String shape, long nanos) {
+    statements++;
+    this.nanos += nanos;
+    shapes.merge(shape, 1, Integer::sum);
+  }
+
+  void fetch(boolean row, long nanos) {
+    if (row) {
+      rows++;
+    }
+    this.nanos += nanos;
+  }
+
+  /**
+   * Get the number of executed statements, a batch counts as one statement.
+   *
+   * @return the number of executed statements
+   */
+  public int statements() {
+    return statements;
+  }
+
+  /**
+   * Get the number of rows fetched from the results of the statements.
+   *
+   * @return the number of fetched rows
+   */
+  public long rows() {
+    return rows;
+  }
+
+  /**
+   * Get the time spent executing statements and fetching their results.
+   *
+   * @return the time in nanoseconds
+   */
+  public long nanos() {
+    return nanos;
+  }
+
+  /**
+   * Get the shape executed most often.
+   *
+   * @return the shape with the number of its executions, null if no statement was executed
+   */
+  public Map.Entry<String, Integer> mostRepeated() {
+    return shapes.entrySet().stream().max(Map.Entry.comparingByValue()).orElse(null);
+  }
+}
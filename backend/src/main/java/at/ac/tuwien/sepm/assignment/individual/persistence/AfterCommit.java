@@ -0,0 +1,35 @@
+package at.ac.tuwien.sepm.assignment.individual.persistence;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers updates of in-memory state derived from the persistent data store, like indexes and caches,
+ * until the current transaction is committed.
+ * So a rolled back transaction, or one retried after a conflict, never leaves changes in memory
+ * that are not in the data store, and other threads never see changes before they are committed.
+ */
+public final class AfterCommit {
+  private AfterCommit() {
+  }
+
+  /**
+   * Run {@code action} once the current transaction is committed, or right away if there is no transaction.
+   * Actions of the same transaction run in the order they were registered.
+   * If the transaction is rolled back, {@code action} is not run at all.
+   *
+   * @param action the action to run
+   */
+  public static void run(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
+}
@@ -2,6 +2,7 @@ package at.ac.tuwien.sepm.assignment.individual.persistence;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.jdbc.datasource.init.ScriptUtils;
@@ -15,23 +16,52 @@ import java.sql.SQLException;
 /**
  * This component is only created, if the profile {@code datagen} is active
  * You can activate this profile by adding {@code -Dspring.profiles.active=datagen} to your maven command line
+ * <p>
+ * By default, the small set of test data in {@code sql/insertData.sql} is inserted.
+ * If {@code datagen.horses} is set, a synthetic pedigree of that size is generated instead, see {@link PedigreeGenerator},
+ * e.g. {@code -Dspring.profiles.active=datagen -Ddatagen.horses=1000000 -Ddatagen.owners=50000}.
+ * </p>
  */
 @Component
 @Profile("datagen")
 public class DataGeneratorBean {
   private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private final DataSource dataSource;
+  private final PedigreeGenerator.Settings settings;
 
   /**
    * Executed once when the component is instantiated. Inserts some dummy data.
+   *
+   * @param dataSource  the data source to insert the data into
+   * @param owners      number of owners to generate
+   * @param horses      number of horses to generate, 0 to insert the small set of test data instead
+   * @param generations number of generations the horses are born in, at least 1
+   * @param seed        seed of the random generator, the same settings always generate the same data
+   * @param inbreeding  probability between 0 and 1, that the mother of a horse is a half sister of its father
+   * @param sireSkew    skew of the number of foals per stallion, 1 means uniform, higher values favour fewer stallions
+   * @param batchSize   number of rows inserted with a single JDBC batch, and committed at once
    */
-  public DataGeneratorBean(DataSource dataSource) {
+  public DataGeneratorBean(
+          DataSource dataSource,
+          @Value("${datagen.owners:1000}") int owners,
+          @Value("${datagen.horses:0}") int horses,
+          @Value("${datagen.generations:10}") int generations,
+          @Value("${datagen.seed:42}") long seed,
+          @Value("${datagen.inbreeding:0.05}") double inbreeding,
+          @Value("${datagen.sire-skew:3.0}") double sireSkew,
+          @Value("${datagen.batch-size:5000}") int batchSize) {
     this.dataSource = dataSource;
+    this.settings = new PedigreeGenerator.Settings(owners, horses, generations, seed, inbreeding, sireSkew, batchSize);
   }
 
   @PostConstruct
   public void generateData() throws SQLException {
     LOGGER.info("Generating data…");
+    if (settings.horses() > 0) {
+      new PedigreeGenerator(dataSource).generate(settings);
+      LOGGER.info("Finished generating data without error.");
+      return;
+    }
     try (var connection = dataSource.getConnection()) {
       ScriptUtils.executeSqlScript(connection, new ClassPathResource("sql/insertData.sql"));
       LOGGER.info("Finished generating data without error.");
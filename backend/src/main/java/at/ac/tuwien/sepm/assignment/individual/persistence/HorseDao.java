@@ -1,13 +1,22 @@
 package at.ac.tuwien.sepm.assignment.individual.persistence;
 
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseCursor;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseDetailDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseOffspringDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseRevisionDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseSearchDto;
 import at.ac.tuwien.sepm.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepm.assignment.individual.exception.ConflictException;
 import at.ac.tuwien.sepm.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepm.assignment.individual.export.ExportWriter;
+import at.ac.tuwien.sepm.assignment.individual.type.HorseField;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Data Access Object for horses.
@@ -25,13 +34,16 @@ public interface HorseDao {
   /**
    * Update the horse with the ID given in {@code horse}
    * with the data given in {@code horse}
-   * in the persistent data store.
+   * in the persistent data store, and increment its version.
+   * If {@code horse.version} is given, the horse is only updated if it still has that version.
+   * No locks are taken to check the version.
    *
    * @param horse the horse to update
-   * @return the updated horse
+   * @return the updated horse, with its new version
    * @throws NotFoundException if the Horse with the given ID does not exist in the persistent data store
+   * @throws ConflictException if the Horse does not have the given version anymore
    */
-  Horse update(HorseDetailDto horse) throws NotFoundException;
+  Horse update(HorseDetailDto horse) throws NotFoundException, ConflictException;
 
   /**
    * Get a horse by its ID from the persistent data store.
@@ -42,6 +54,38 @@ public interface HorseDao {
    */
   Horse getById(long id) throws NotFoundException;
 
+  /**
+   * Fetch a set of horses by their IDs from the persistent data store.
+   * This is best effort, if some horse can not be found in the data store, it is simply not in the returned set.
+   *
+   * @param ids a collection of ids, to fetch the referenced horses by.
+   * @return the collection of all found horses, without those, that are not in the persistent data store
+   */
+  Collection<Horse> getAllById(Collection<Long> ids);
+
+  /**
+   * Get a horse by its ID from the persistent data store, together with its owner and both of its parents.
+   * Everything is loaded with a single query. The parents of the parents are not included.
+   * Only the columns of the given {@code fields} are selected, and the owner and the parents are only joined
+   * if they are requested. The ID and the version of the horse are always loaded.
+   *
+   * @param id     the ID of the horse to get
+   * @param fields the fields of the horse to load
+   * @return the horse with its owner and parents, fields that were not requested are null
+   * @throws NotFoundException if the Horse with the given ID does not exist in the persistent data store
+   */
+  HorseDetailDto getDetailById(long id, Set<HorseField> fields) throws NotFoundException;
+
+  /**
+   * Get the revision of the detail of a horse, that is the versions of the horse, its owner and its parents,
+   * without loading the detail itself.
+   *
+   * @param id the ID of the horse
+   * @return the revision of the detail of the horse
+   * @throws NotFoundException if the Horse with the given ID does not exist in the persistent data store
+   */
+  HorseRevisionDto getRevisionById(long id) throws NotFoundException;
+
   /**
    * Create a new Horse with Data given in {@code horse}
    * stores the horse in the persistent data store and
@@ -52,6 +96,16 @@ public interface HorseDao {
    */
   Horse create(HorseCreateDto horseCreateDto);
 
+  /**
+   * Create new Horses with the data given in {@code horses}
+   * using a single JDBC batch update.
+   * The horses are stored in the persistent data store and get a unique generated ID each.
+   *
+   * @param horses the horses to create
+   * @return the created horses with their generated IDs, in the same order as {@code horses}
+   */
+  List<Horse> createAll(List<HorseCreateDto> horses);
+
   /**
    * Deletes a Horse with the id given {@code id}
    * deletes every relationship including this horse (parent-child
@@ -63,20 +117,15 @@ public interface HorseDao {
   void delete(long id) throws NotFoundException;
 
   /**
-   * Is true if given horse is Parent of any other Horse
-   *
-   * @param horse horse to be checked for children
-   * @return true iff parent
-   */
-  boolean isParent(HorseDetailDto horse);
-
-  /**
-   * Get all Children of a given Horse
+   * Get the number of children of the horse with the given id and the birthdate of its oldest child,
+   * together with its currently stored sex.
+   * The children are aggregated in the persistent data store, so the cost does not depend on their number.
    *
-   * @param horse horse to retrieve children from
-   * @return a Collection of Horses which are children to given horse
+   * @param id the id of the horse
+   * @return the summary of the children of the horse
+   * @throws NotFoundException if horse with given id is not found in system
    */
-  Collection<Horse> getAllChildren(HorseDetailDto horse);
+  HorseOffspringDto getOffspringSummary(long id) throws NotFoundException;
 
   /**
    * Search for Horses matching the criteria in {@code searchParameters}.
@@ -90,15 +139,51 @@ public interface HorseDao {
    * contains more than {@code searchParameters.limit} elements,
    * even if there would be more matches in the persistent data store.
    * If searchParams.limit is null every matching element is returned in the stream
+   * The description of the matched horses is not loaded.
    * </p>
    *
    * @param searchParams object containing the search parameters to match
-   * @return List containging Horses matching criteria in {@code searchParams}
+   * @return List containging Horses matching criteria in {@code searchParams}, without their description
    */
   List<Horse> searchForHorses(HorseSearchDto searchParams);
 
+  /**
+   * Search for Horses matching the criteria in {@code searchParams}, like {@link #searchForHorses(HorseSearchDto)},
+   * but stream the matches directly from the database cursor instead of collecting them in a list.
+   * The rows are fetched from the database in chunks of the configured fetch size.
+   * Only the columns of the given {@code fields} are selected, the ID is always selected.
+   * <p>
+   * The returned stream holds a database connection, until it is closed.
+   * It <b>must</b> be closed by the caller, e.g. with a try-with-resources statement.
+   * </p>
+   *
+   * @param searchParams object containing the search parameters to match
+   * @param fields       the fields of the horses to load
+   * @return a lazily populated Stream of the Horses matching the criteria in {@code searchParams},
+   *         with only the requested fields
+   */
+  Stream<Horse> streamHorses(HorseSearchDto searchParams, Set<HorseField> fields);
+
+  /**
+   * Search for one page of Horses matching the criteria in {@code searchParams},
+   * using keyset pagination over the horses ordered by name and ID.
+   * Every page costs the same, no matter how far into the result it starts.
+   * {@code searchParams.limit} is ignored.
+   * Only the columns of the given {@code fields} are selected, the ID and the name are always selected.
+   *
+   * @param searchParams object containing the search parameters to match
+   * @param after        position of the last horse of the previous page, null for the first page
+   * @param pageSize     maximum number of horses on the page
+   * @param fields       the fields of the horses to load
+   * @return List containing at most {@code pageSize} Horses matching the criteria, ordered by name and ID,
+   *         with only the requested fields
+   */
+  List<Horse> searchForHorses(HorseSearchDto searchParams, HorseCursor after, int pageSize, Set<HorseField> fields);
+
   /**
    * Get a List of Horses representing the ancestors of the Horse specified by id.
+   * The ancestors are walked in the in-memory pedigree index, so the cost only depends on the size of the tree.
+   * Every ancestor is contained at most once, even if it appears on several lines of the tree.
    *
    * @param id          the id of the root horse of the family tree
    * @param generations number of generations of ancestors
@@ -106,4 +191,28 @@ public interface HorseDao {
    * @throws NotFoundException if horse with given id is not found in system
    */
   List<Horse> getFamilyTree(Long id, Long generations) throws NotFoundException;
+
+  /**
+   * Get a List of Horses representing the descendants of the Horse specified by id.
+   * The descendants are fetched one generation at a time, with one indexed lookup of the children
+   * of all horses of the previous generation.
+   * Every descendant is contained at most once, even if it descends from the root horse on several lines.
+   * The description of the descendants is not loaded.
+   *
+   * @param id          the id of the root horse
+   * @param generations number of generations of descendants
+   * @return the root horse followed by its descendants up to the specified generation, ordered by generation
+   * @throws NotFoundException if horse with given id is not found in system
+   */
+  List<Horse> getDescendants(Long id, Long generations) throws NotFoundException;
+
+  /**
+   * Write every horse in the persistent data store to {@code writer}, ordered by ID,
+   * with the data of its owner in the same row.
+   * The rows are passed on while they are read from a database cursor, so none of them are kept in memory.
+   *
+   * @param writer the writer to write the rows to, it is started but not closed
+   * @throws IOException if writing to {@code writer} fails
+   */
+  void exportHorses(ExportWriter writer) throws IOException;
 }
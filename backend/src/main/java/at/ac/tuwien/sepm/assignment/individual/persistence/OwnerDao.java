@@ -4,7 +4,9 @@ import at.ac.tuwien.sepm.assignment.individual.dto.OwnerCreateDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.OwnerSearchDto;
 import at.ac.tuwien.sepm.assignment.individual.entity.Owner;
 import at.ac.tuwien.sepm.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepm.assignment.individual.export.ExportWriter;
 
+import java.io.IOException;
 import java.util.Collection;
 
 /**
@@ -50,4 +52,13 @@ public interface OwnerDao {
    * @return the newly created owner
    */
   Owner create(OwnerCreateDto newOwner);
+
+  /**
+   * Write every owner in the persistent data store to {@code writer}, ordered by ID.
+   * The rows are passed on while they are read from a database cursor, so none of them are kept in memory.
+   *
+   * @param writer the writer to write the rows to, it is started but not closed
+   * @throws IOException if writing to {@code writer} fails
+   */
+  void exportOwners(ExportWriter writer) throws IOException;
 }
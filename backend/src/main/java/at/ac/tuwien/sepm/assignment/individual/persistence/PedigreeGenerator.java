@@ -0,0 +1,282 @@
+package at.ac.tuwien.sepm.assignment.individual.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.lang.invoke.MethodHandles;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates a synthetic pedigree of arbitrary size for load testing.
+ * <p>
+ * The horses are born in {@code generations} consecutive generations, a few years apart,
+ * with the last generation born last year.
+ * Every horse after the first generation has a father and a mother from the previous generation,
+ * so every generated horse passes the checks of the horse validator: parents have the right sex
+ * and are born before their children.
+ * Fathers are picked with a skewed distribution, so a few popular stallions sire most of the foals.
+ * With probability {@code inbreeding} the mother is a half sister of the father, sharing his sire.
+ * </p>
+ * <p>
+ * The data only depends on the settings, including the seed, and not on the data already stored.
+ * IDs are assigned by the generator, after the highest ID already used, so all rows are written
+ * with plain JDBC batches without reading back generated keys.
+ * </p>
+ */
+public class PedigreeGenerator {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final String SQL_INSERT_OWNER = "INSERT INTO owner (id, first_name, last_name, email) VALUES (?, ?, ?, ?)";
+  private static final String SQL_INSERT_HORSE = "INSERT INTO horse "
+          + "(id, name, description, date_of_birth, sex, owner_id, mother_id, father_id) "
+          + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+  private static final int YEARS_PER_GENERATION = 4;
+  private static final double UNOWNED_SHARE = 0.1;
+  private static final double DESCRIBED_SHARE = 0.3;
+  private static final String[] NAME_SYLLABLES = {
+      "al", "bel", "ca", "dor", "el", "fa", "gra", "ha", "il", "jo", "ka", "lu", "ma", "nor", "o", "pe",
+      "qui", "ra", "sil", "ta", "u", "ver", "wil", "xa", "yo", "ze", "ri", "an", "sta", "mo"
+  };
+  private static final String[] FIRST_NAMES = {
+      "Anna", "Ben", "Clara", "David", "Emma", "Felix", "Greta", "Hans", "Ida", "Jonas", "Klara", "Lukas",
+      "Marie", "Noah", "Olivia", "Paul", "Rosa", "Simon", "Tina", "Viktor"
+  };
+  private static final String[] LAST_NAMES = {
+      "Auer", "Berger", "Fischer", "Gruber", "Huber", "Koller", "Lang", "Mayer", "Moser", "Pichler",
+      "Schmid", "Steiner", "Wagner", "Wallner", "Weber", "Wolf"
+  };
+  private static final String[] DESCRIPTIONS = {
+      "calm and reliable", "strong jumper", "fast on the flat", "needs an experienced rider",
+      "great with children", "promising dressage talent", "retired from racing", "loves long rides"
+  };
+
+  private final DataSource dataSource;
+
+  public PedigreeGenerator(DataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  /**
+   * Settings of a generated pedigree.
+   *
+   * @param owners      number of owners to generate
+   * @param horses      number of horses to generate
+   * @param generations number of generations the horses are born in, at least 1
+   * @param seed        seed of the random generator, the same settings always generate the same data
+   * @param inbreeding  probability between 0 and 1, that the mother of a horse is a half sister of its father
+   * @param sireSkew    skew of the number of foals per stallion, 1 means uniform, higher values favour fewer stallions
+   * @param batchSize   number of rows inserted with a single JDBC batch, and committed at once
+   */
+  public record Settings(
+          int owners,
+          int horses,
+          int generations,
+          long seed,
+          double inbreeding,
+          double sireSkew,
+          int batchSize
+  ) {
+  }
+
+  /**
+   * Generate the owners and horses described by {@code settings} and store them in the persistent data store.
+   *
+   * @param settings the settings of the pedigree
+   * @throws SQLException if storing the data fails, rows of batches committed before the failure remain stored
+   */
+  public void generate(Settings settings) throws SQLException {
+    LOGGER.trace("generate({})", settings);
+    if (settings.generations() < 1 || settings.batchSize() < 1) {
+      throw new IllegalArgumentException("Generations and batch size must be positive");
+    }
+    long start = System.nanoTime();
+    Random random = new Random(settings.seed());
+    try (Connection connection = dataSource.getConnection()) {
+      boolean autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      try {
+        long firstOwnerId = nextId(connection, "owner");
+        insertOwners(connection, settings, random, firstOwnerId);
+        long firstHorseId = nextId(connection, "horse");
+        insertHorses(connection, settings, random, firstOwnerId, firstHorseId);
+        restartIdentity(connection, "owner", firstOwnerId + settings.owners());
+        restartIdentity(connection, "horse", firstHorseId + settings.horses());
+        connection.commit();
+      } catch (SQLException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      } finally {
+        connection.setAutoCommit(autoCommit);
+      }
+    }
+    LOGGER.info("Generated {} owners and {} horses in {} generations in {} ms",
+            settings.owners(), settings.horses(), settings.generations(), (System.nanoTime() - start) / 1_000_000);
+  }
+
+  private void insertOwners(Connection connection, Settings settings, Random random, long firstId) throws SQLException {
+    try (PreparedStatement insert = connection.prepareStatement(SQL_INSERT_OWNER)) {
+      for (int i = 0; i < settings.owners(); i++) {
+        String firstName = pick(random, FIRST_NAMES);
+        String lastName = pick(random, LAST_NAMES);
+        insert.setLong(1, firstId + i);
+        insert.setString(2, firstName);
+        insert.setString(3, lastName);
+        if (random.nextBoolean()) {
+          insert.setString(4, "%s.%s%d@example.com".formatted(firstName, lastName, i).toLowerCase());
+        } else {
+          insert.setNull(4, Types.VARCHAR);
+        }
+        insert.addBatch();
+        if ((i + 1) % settings.batchSize() == 0) {
+          flush(connection, insert);
+        }
+      }
+      flush(connection, insert);
+    }
+  }
+
+  private void insertHorses(Connection connection, Settings settings, Random random, long firstOwnerId, long firstId)
+          throws SQLException {
+    LocalDate lastBorn = LocalDate.now().minusYears(1).withDayOfYear(1);
+    long nextId = firstId;
+    Generation previous = null;
+    try (PreparedStatement insert = connection.prepareStatement(SQL_INSERT_HORSE)) {
+      for (int g = 0; g < settings.generations(); g++) {
+        int size = settings.horses() / settings.generations()
+                + (g < settings.horses() % settings.generations() ? 1 : 0);
+        LocalDate born = lastBorn.minusYears((long) YEARS_PER_GENERATION * (settings.generations() - 1 - g));
+        Generation current = new Generation(size);
+        for (int i = 0; i < size; i++) {
+          long id = nextId++;
+          boolean male = random.nextBoolean();
+          final LocalDate dateOfBirth = born.plusDays(random.nextInt(born.lengthOfYear()));
+
+          Long fatherId = null;
+          Long motherId = null;
+          if (previous != null && !previous.stallions.isEmpty() && !previous.mares.isEmpty()) {
+            int father = previous.stallions.get(
+                    (int) (previous.stallions.size() * Math.pow(random.nextDouble(), settings.sireSkew())));
+            int mother = -1;
+            List<Integer> halfSisters = previous.daughtersBySire.get(previous.sires[father]);
+            if (halfSisters != null && random.nextDouble() < settings.inbreeding()) {
+              mother = halfSisters.get(random.nextInt(halfSisters.size()));
+            }
+            if (mother < 0) {
+              mother = previous.mares.get(random.nextInt(previous.mares.size()));
+            }
+            fatherId = previous.ids[father];
+            motherId = previous.ids[mother];
+          }
+          current.add(i, id, male, fatherId);
+
+          String name = name(random);
+          String description = random.nextDouble() < DESCRIBED_SHARE ? pick(random, DESCRIPTIONS) : null;
+          insert.setLong(1, id);
+          insert.setString(2, name);
+          insert.setString(3, description);
+          insert.setDate(4, Date.valueOf(dateOfBirth));
+          insert.setString(5, male ? "MALE" : "FEMALE");
+          if (settings.owners() > 0 && random.nextDouble() >= UNOWNED_SHARE) {
+            insert.setLong(6, firstOwnerId + random.nextInt(settings.owners()));
+          } else {
+            insert.setNull(6, Types.BIGINT);
+          }
+          setNullableLong(insert, 7, motherId);
+          setNullableLong(insert, 8, fatherId);
+          insert.addBatch();
+          if ((id - firstId + 1) % settings.batchSize() == 0) {
+            flush(connection, insert);
+          }
+        }
+        flush(connection, insert);
+        LOGGER.info("Generated generation {} of {} with {} horses", g + 1, settings.generations(), size);
+        previous = current;
+      }
+    }
+  }
+
+  private static void setNullableLong(PreparedStatement statement, int index, Long value) throws SQLException {
+    if (value == null) {
+      statement.setNull(index, Types.BIGINT);
+    } else {
+      statement.setLong(index, value);
+    }
+  }
+
+  private static void flush(Connection connection, PreparedStatement insert) throws SQLException {
+    insert.executeBatch();
+    connection.commit();
+  }
+
+  private static void execute(Connection connection, String sql) throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(sql);
+    }
+  }
+
+  private static long nextId(Connection connection, String table) throws SQLException {
+    try (Statement statement = connection.createStatement();
+         var result = statement.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table)) {
+      result.next();
+      return Math.max(1, result.getLong(1));
+    }
+  }
+
+  private static void restartIdentity(Connection connection, String table, long next) throws SQLException {
+    execute(connection, "ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + next);
+  }
+
+  private static String name(Random random) {
+    StringBuilder name = new StringBuilder();
+    int syllables = 2 + random.nextInt(2);
+    for (int i = 0; i < syllables; i++) {
+      name.append(pick(random, NAME_SYLLABLES));
+    }
+    name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+    return name.toString();
+  }
+
+  private static String pick(Random random, String[] values) {
+    return values[random.nextInt(values.length)];
+  }
+
+  /**
+   * The horses of one generation, as far as they are needed to pick the parents of the next one.
+   */
+  private static class Generation {
+    private final long[] ids;
+    private final long[] sires;
+    private final List<Integer> stallions = new ArrayList<>();
+    private final List<Integer> mares = new ArrayList<>();
+    private final Map<Long, List<Integer>> daughtersBySire = new HashMap<>();
+
+    Generation(int size) {
+      this.ids = new long[size];
+      this.sires = new long[size];
+    }
+
+    void add(int index, long id, boolean male, Long fatherId) {
+      ids[index] = id;
+      sires[index] = fatherId == null ? 0 : fatherId;
+      if (male) {
+        stallions.add(index);
+      } else {
+        mares.add(index);
+        if (fatherId != null) {
+          daughtersBySire.computeIfAbsent(fatherId, sire -> new ArrayList<>()).add(index);
+        }
+      }
+    }
+  }
+}
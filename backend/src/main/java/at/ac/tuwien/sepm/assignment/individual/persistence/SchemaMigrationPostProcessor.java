@@ -0,0 +1,32 @@
+package at.ac.tuwien.sepm.assignment.individual.persistence;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Migrates the schema of every {@link DataSource} of the application with the {@link SchemaMigrator},
+ * before it is handed to any other bean.
+ * So the schema is up to date before anything accesses the persistent data store,
+ * and opening a connection does not execute any DDL.
+ * The migrations are read from {@code schema.migration.location}.
+ */
+@Component
+public class SchemaMigrationPostProcessor implements BeanPostProcessor {
+  private final Environment environment;
+
+  public SchemaMigrationPostProcessor(Environment environment) {
+    this.environment = environment;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    if (bean instanceof DataSource dataSource) {
+      String location = environment.getProperty("schema.migration.location", SchemaMigrator.DEFAULT_LOCATION);
+      new SchemaMigrator(dataSource, location).migrate();
+    }
+    return bean;
+  }
+}
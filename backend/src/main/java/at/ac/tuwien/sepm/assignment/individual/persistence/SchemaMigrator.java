@@ -0,0 +1,184 @@
+package at.ac.tuwien.sepm.assignment.individual.persistence;
+
+import at.ac.tuwien.sepm.assignment.individual.exception.FatalException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.util.FileCopyUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Brings the schema of the persistent data store up to date, by applying versioned migration scripts.
+ * <p>
+ * Migrations are SQL scripts named {@code V<version>__<description>.sql} in the migration location,
+ * e.g. {@code classpath:db/migration/V2__create_horse_indexes.sql}.
+ * They are applied once each, in the order of their version, and recorded in the table {@code schema_migration}
+ * together with a checksum of their content.
+ * A migration must never be changed after it was applied, every change of the schema is a new migration.
+ * </p>
+ * <p>
+ * H2 commits every DDL statement on its own, so a migration failing half way is not rolled back.
+ * Migrations therefore only use statements that can be repeated, like {@code CREATE TABLE IF NOT EXISTS},
+ * so a failed migration can simply be applied again once fixed.
+ * This also lets the first migrations run on data stores created before migrations existed,
+ * whose schema already contains everything they create.
+ * </p>
+ */
+public class SchemaMigrator {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  public static final String DEFAULT_LOCATION = "classpath:db/migration";
+  private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+  private static final String SQL_CREATE_TABLE = "CREATE TABLE IF NOT EXISTS schema_migration ("
+          + " version      INT          PRIMARY KEY,"
+          + " description  VARCHAR(255) NOT NULL,"
+          + " checksum     BIGINT       NOT NULL,"
+          + " applied_at   TIMESTAMP    NOT NULL,"
+          + " execution_ms BIGINT       NOT NULL"
+          + ")";
+  private static final String SQL_SELECT_APPLIED = "SELECT version, checksum FROM schema_migration";
+  private static final String SQL_INSERT_APPLIED = "INSERT INTO schema_migration "
+          + "(version, description, checksum, applied_at, execution_ms) VALUES (?, ?, ?, ?, ?)";
+
+  private final DataSource dataSource;
+  private final String location;
+
+  public SchemaMigrator(DataSource dataSource, String location) {
+    this.dataSource = dataSource;
+    this.location = location;
+  }
+
+  /**
+   * A migration script.
+   *
+   * @param version     the version of the schema after the migration
+   * @param description what the migration does, taken from the file name
+   * @param script      the SQL script
+   * @param checksum    CRC32 of the script, ignoring line endings
+   */
+  record Migration(int version, String description, Resource script, long checksum) {
+  }
+
+  /**
+   * Apply all migrations not applied yet, in the order of their version.
+   *
+   * @return the number of applied migrations
+   * @throws FatalException if a migration fails, was changed after it was applied,
+   *                        or if the data store has a migration applied, that is unknown to the application
+   */
+  public int migrate() {
+    LOGGER.trace("migrate()");
+    List<Migration> migrations = findMigrations();
+    try (Connection connection = dataSource.getConnection()) {
+      try (var statement = connection.createStatement()) {
+        statement.execute(SQL_CREATE_TABLE);
+      }
+      Map<Integer, Long> applied = appliedMigrations(connection);
+      validate(migrations, applied);
+      int count = 0;
+      for (Migration migration : migrations) {
+        if (!applied.containsKey(migration.version())) {
+          apply(connection, migration);
+          count++;
+        }
+      }
+      int version = migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version();
+      LOGGER.info("Schema is at version {}, applied {} migrations", version, count);
+      return count;
+    } catch (SQLException e) {
+      throw new FatalException("Migrating the schema failed", e);
+    }
+  }
+
+  List<Migration> findMigrations() {
+    List<Migration> migrations = new ArrayList<>();
+    try {
+      Resource[] resources = new PathMatchingResourcePatternResolver().getResources(location + "/*.sql");
+      for (Resource resource : resources) {
+        var matcher = FILE_NAME.matcher(resource.getFilename() == null ? "" : resource.getFilename());
+        if (!matcher.matches()) {
+          throw new FatalException("Migration " + resource + " is not named V<version>__<description>.sql");
+        }
+        migrations.add(new Migration(Integer.parseInt(matcher.group(1)), matcher.group(2).replace('_', ' '),
+                resource, checksum(resource)));
+      }
+    } catch (IOException e) {
+      throw new FatalException("Reading the migrations in " + location + " failed", e);
+    }
+    migrations.sort(Comparator.comparingInt(Migration::version));
+    for (int i = 1; i < migrations.size(); i++) {
+      if (migrations.get(i).version() == migrations.get(i - 1).version()) {
+        throw new FatalException("There is more than one migration with version " + migrations.get(i).version());
+      }
+    }
+    return migrations;
+  }
+
+  private static long checksum(Resource resource) throws IOException {
+    String script = FileCopyUtils.copyToString(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8));
+    var crc = new CRC32();
+    crc.update(script.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+    return crc.getValue();
+  }
+
+  private static Map<Integer, Long> appliedMigrations(Connection connection) throws SQLException {
+    Map<Integer, Long> applied = new HashMap<>();
+    try (var statement = connection.createStatement();
+         var result = statement.executeQuery(SQL_SELECT_APPLIED)) {
+      while (result.next()) {
+        applied.put(result.getInt("version"), result.getLong("checksum"));
+      }
+    }
+    return applied;
+  }
+
+  private static void validate(List<Migration> migrations, Map<Integer, Long> applied) {
+    Map<Integer, Long> unknown = new HashMap<>(applied);
+    for (Migration migration : migrations) {
+      Long checksum = unknown.remove(migration.version());
+      if (checksum != null && checksum != migration.checksum()) {
+        throw new FatalException("Migration V" + migration.version() + " was changed after it was applied");
+      }
+    }
+    if (!unknown.isEmpty()) {
+      throw new FatalException("The schema has migrations " + unknown.keySet()
+              + " applied, that are unknown to this version of the application");
+    }
+  }
+
+  private static void apply(Connection connection, Migration migration) throws SQLException {
+    LOGGER.info("Applying migration V{} {}", migration.version(), migration.description());
+    long start = System.nanoTime();
+    ScriptUtils.executeSqlScript(connection, new EncodedResource(migration.script(), StandardCharsets.UTF_8));
+    long runtime = (System.nanoTime() - start) / 1_000_000;
+    try (var insert = connection.prepareStatement(SQL_INSERT_APPLIED)) {
+      insert.setInt(1, migration.version());
+      insert.setString(2, migration.description());
+      insert.setLong(3, migration.checksum());
+      insert.setTimestamp(4, Timestamp.from(Instant.now()));
+      insert.setLong(5, runtime);
+      insert.executeUpdate();
+    }
+    if (!connection.getAutoCommit()) {
+      connection.commit();
+    }
+  }
+}
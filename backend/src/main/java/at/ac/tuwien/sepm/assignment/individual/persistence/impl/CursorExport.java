@@ -0,0 +1,53 @@
+package at.ac.tuwien.sepm.assignment.individual.persistence.impl;
+
+import at.ac.tuwien.sepm.assignment.individual.export.ExportWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.util.List;
+
+/**
+ * Streams the rows of a query from a database cursor to an {@link ExportWriter}.
+ */
+final class CursorExport {
+  private static final int FETCH_SIZE = 1000;
+
+  private CursorExport() {
+  }
+
+  /**
+   * Run the query and write every row of its result to the writer, while reading it.
+   *
+   * @param jdbcTemplate the template to run the query with
+   * @param sql          the query, selecting exactly the given columns
+   * @param columns      the names of the selected columns, in order
+   * @param writer       the writer to start and write the rows to
+   * @throws IOException if writing to {@code writer} fails
+   */
+  static void export(JdbcTemplate jdbcTemplate, String sql, List<String> columns, ExportWriter writer) throws IOException {
+    writer.start(columns);
+    Object[] values = new Object[columns.size()];
+    try {
+      jdbcTemplate.query(connection -> {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        statement.setFetchSize(FETCH_SIZE);
+        return statement;
+      }, result -> {
+        for (int i = 0; i < values.length; i++) {
+          Object value = result.getObject(i + 1);
+          values[i] = value instanceof Date date ? date.toLocalDate() : value;
+        }
+        try {
+          writer.row(values);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+}
@@ -1,32 +1,53 @@
 package at.ac.tuwien.sepm.assignment.individual.persistence.impl;
 
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseCursor;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseDetailDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseOffspringDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseParentDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseRevisionDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseSearchDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.OwnerDto;
 import at.ac.tuwien.sepm.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepm.assignment.individual.exception.ConflictException;
 import at.ac.tuwien.sepm.assignment.individual.exception.FatalException;
 import at.ac.tuwien.sepm.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepm.assignment.individual.export.ExportWriter;
+import at.ac.tuwien.sepm.assignment.individual.persistence.AfterCommit;
 import at.ac.tuwien.sepm.assignment.individual.persistence.HorseDao;
+import at.ac.tuwien.sepm.assignment.individual.type.HorseField;
 import at.ac.tuwien.sepm.assignment.individual.type.Sex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 @Repository
 public class HorseJdbcDao implements HorseDao {
@@ -34,10 +55,30 @@ public class HorseJdbcDao implements HorseDao {
 
   private static final String TABLE_NAME = "horse";
   private static final String SQL_DELETE = "DELETE FROM " + TABLE_NAME + " WHERE id = ?";
-  private static final String SQL_SELECT_ALL_BY_ID = "SELECT * FROM " + TABLE_NAME + " WHERE id IN (:ids)";
-  private static final String SQL_SELECT_ALL = "SELECT * FROM " + TABLE_NAME;
-  private static final String SQL_SELECT_BY_ID = "SELECT * FROM " + TABLE_NAME + " WHERE id = ?";
-  private static final String SQL_UPDATE = "UPDATE " + TABLE_NAME
+  private static final String SQL_SELECT_ALL_BY_ID = "SELECT " + HorseProjection.ENTITY.select(TABLE_NAME)
+          + " FROM " + TABLE_NAME + " WHERE id IN (:ids)";
+  private static final String SQL_SELECT_ALL = "SELECT " + HorseProjection.ENTITY.select(TABLE_NAME) + " FROM " + TABLE_NAME;
+  private static final String SQL_SELECT_BY_ID = "SELECT " + HorseProjection.ENTITY.select(TABLE_NAME)
+          + " FROM " + TABLE_NAME + " WHERE id = ?";
+  // the detail query is built from these parts, in the order mapDetailRow reads them
+  private static final String SQL_DETAIL_SELECT = "SELECT h.id, h.version";
+  private static final String SQL_DETAIL_OWNER_COLUMNS = ", o.id, o.first_name, o.last_name, o.email, o.version";
+  private static final String SQL_DETAIL_MOTHER_COLUMNS = ", m.id, m.name, m.description, m.date_of_birth, m.sex, m.version";
+  private static final String SQL_DETAIL_FATHER_COLUMNS = ", f.id, f.name, f.description, f.date_of_birth, f.sex, f.version";
+  private static final String SQL_DETAIL_FROM = " FROM " + TABLE_NAME + " h";
+  private static final String SQL_DETAIL_JOIN_OWNER = " LEFT JOIN owner o ON h.owner_id = o.id";
+  private static final String SQL_DETAIL_JOIN_MOTHER = " LEFT JOIN " + TABLE_NAME + " m ON h.mother_id = m.id";
+  private static final String SQL_DETAIL_JOIN_FATHER = " LEFT JOIN " + TABLE_NAME + " f ON h.father_id = f.id";
+  private static final String SQL_DETAIL_WHERE = " WHERE h.id = ?";
+  private static final String SQL_SELECT_REVISION_BY_ID = "SELECT h.version, o.version, m.version, f.version"
+          + " FROM " + TABLE_NAME + " h"
+          + " LEFT JOIN owner o ON h.owner_id = o.id"
+          + " LEFT JOIN " + TABLE_NAME + " m ON h.mother_id = m.id"
+          + " LEFT JOIN " + TABLE_NAME + " f ON h.father_id = f.id"
+          + " WHERE h.id = ?";
+  private static final String SQL_SELECT_VERSION_BY_ID = "SELECT version FROM " + TABLE_NAME + " WHERE id = ?";
+  // the version is only checked, if one is given, and the new version is read back in the same statement
+  private static final String SQL_UPDATE = "SELECT version FROM FINAL TABLE (UPDATE " + TABLE_NAME
           + " SET name = ?"
           + "  , description = ?"
           + "  , date_of_birth = ?"
@@ -45,55 +86,66 @@ public class HorseJdbcDao implements HorseDao {
           + "  , owner_id = ?"
           + "  , mother_id = ?"
           + "  , father_id = ?"
-          + " WHERE id = ?";
+          + "  , version = version + 1"
+          + " WHERE id = ? AND version = COALESCE(?, version))";
   private static final String SQL_CREATE = "INSERT INTO " + TABLE_NAME
           + " (name, description, date_of_birth, sex, owner_id, mother_id, father_id)"
           + " VALUES(?,?,?,?,?,?,?)";
   private static final String SQL_REMOVE_FATHER = "UPDATE " + TABLE_NAME + " SET father_id = NULL WHERE father_id = ?";
   private static final String SQL_REMOVE_MOTHER = "UPDATE " + TABLE_NAME + " SET mother_id = NULL WHERE mother_id = ?";
-  private static final String SQL_SELECT_ALL_CHILDREN = "SELECT * FROM " + TABLE_NAME + " WHERE mother_id = ? OR father_id = ?";
-  private static final String SQL_SEARCH_WITH_PARAMS =
-          "SELECT * FROM " + TABLE_NAME
-                  + " LEFT JOIN owner ON " + TABLE_NAME + ".owner_id = owner.id"
-                  + " WHERE (? IS NULL OR UPPER(name) LIKE UPPER('%'||?||'%'))" //matching name
-                  + " AND (? IS NULL OR UPPER(description) LIKE UPPER('%'||?||'%'))"  //matching description
-                  + " AND (? IS NULL OR sex = ?)" //matching sex
-                  + " AND (? IS NULL OR date_of_birth < ?)" //matching date of birth
-                  + " AND (? IS NULL OR UPPER(first_name||' '||last_name) like UPPER('%'||COALESCE(?, '')||'%'))";
-  private static final String SQL_LIMIT = " LIMIT ?";
-  private static final String SQL_RECURSIVE_TREE = "WITH RECURSIVE ancestors"
-          + " (id, name, description, date_of_birth, sex, owner_id, mother_id, father_id, recLevel) AS"
-          + " (SELECT *, 1 AS recLevel FROM " + TABLE_NAME
-          + " WHERE id = ?"
-          + " UNION "
-          + " SELECT  h.id, h.name, h.description, h.date_of_birth, h.sex, h.owner_id, h.mother_id, h.father_id, (recLevel + 1) AS recLevel"
-          + " FROM horse h"
-          + " JOIN ancestors a ON (h.id = a.mother_id OR h.id = a.father_id)"
-          + " WHERE recLevel < ?)"
-          + " SELECT * FROM ancestors";
+  // UNIONs instead of OR, so both lookups can use their index
+  private static final String SQL_SELECT_OFFSPRING_SUMMARY = "SELECT h.sex, COUNT(c.id) AS child_count"
+          + "  , MIN(c.date_of_birth) AS earliest_child_date_of_birth"
+          + " FROM " + TABLE_NAME + " h"
+          + " LEFT JOIN (SELECT id, date_of_birth FROM " + TABLE_NAME + " WHERE mother_id = ?"
+          + "  UNION SELECT id, date_of_birth FROM " + TABLE_NAME + " WHERE father_id = ?) c ON TRUE"
+          + " WHERE h.id = ?"
+          + " GROUP BY h.sex";
+  private static final String SQL_SELECT_ALL_CHILDREN_OF_ALL = "SELECT " + HorseProjection.LIST.select(TABLE_NAME)
+          + " FROM " + TABLE_NAME + " WHERE mother_id IN (:ids)"
+          + " UNION SELECT " + HorseProjection.LIST.select(TABLE_NAME) + " FROM " + TABLE_NAME + " WHERE father_id IN (:ids)";
+  private static final int MAX_IDS_PER_QUERY = 1000;
+  private static final List<String> EXPORT_COLUMNS = List.of("id", "name", "description", "date_of_birth", "sex",
+          "mother_id", "father_id", "owner_id", "owner_first_name", "owner_last_name", "owner_email");
+  private static final String SQL_EXPORT = "SELECT h.id, h.name, h.description, h.date_of_birth, h.sex"
+          + "  , h.mother_id, h.father_id"
+          + "  , o.id AS owner_id, o.first_name AS owner_first_name, o.last_name AS owner_last_name, o.email AS owner_email"
+          + " FROM " + TABLE_NAME + " h"
+          + " LEFT JOIN owner o ON h.owner_id = o.id"
+          + " ORDER BY h.id";
 
   private final JdbcTemplate jdbcTemplate;
   private final NamedParameterJdbcTemplate jdbcNamed;
+  private final PedigreeIndex pedigreeIndex;
+  private final HorseSearchQueryBuilder searchQueryBuilder;
+  private final int searchFetchSize;
+  private final Map<Set<HorseField>, String> detailStatements = new ConcurrentHashMap<>();
 
   @Autowired
   public HorseJdbcDao(
           JdbcTemplate jdbcTemplate,
-          NamedParameterJdbcTemplate jdbcNamed) {
+          NamedParameterJdbcTemplate jdbcNamed,
+          PedigreeIndex pedigreeIndex,
+          HorseSearchQueryBuilder searchQueryBuilder,
+          @Value("${horse.search.fetch-size:500}") int searchFetchSize) {
     this.jdbcTemplate = jdbcTemplate;
     this.jdbcNamed = jdbcNamed;
+    this.pedigreeIndex = pedigreeIndex;
+    this.searchQueryBuilder = searchQueryBuilder;
+    this.searchFetchSize = searchFetchSize;
   }
 
   @Override
   public List<Horse> getAll() {
     LOG.trace("getAll()");
-    return jdbcTemplate.query(SQL_SELECT_ALL, this::mapRow);
+    return jdbcTemplate.query(SQL_SELECT_ALL, HorseProjection.ENTITY::mapRow);
   }
 
   @Override
   public Horse getById(long id) throws NotFoundException {
     LOG.trace("getById({})", id);
     List<Horse> horses;
-    horses = jdbcTemplate.query(SQL_SELECT_BY_ID, this::mapRow, id);
+    horses = jdbcTemplate.query(SQL_SELECT_BY_ID, HorseProjection.ENTITY::mapRow, id);
 
     if (horses.isEmpty()) {
       throw new NotFoundException("No horse with ID %d found".formatted(id));
@@ -106,6 +158,46 @@ public class HorseJdbcDao implements HorseDao {
     return horses.get(0);
   }
 
+  @Override
+  public Collection<Horse> getAllById(Collection<Long> ids) {
+    LOG.trace("getAllById({})", ids);
+    var statementParams = Collections.singletonMap("ids", ids);
+    return jdbcNamed.query(SQL_SELECT_ALL_BY_ID, statementParams, HorseProjection.ENTITY::mapRow);
+  }
+
+  @Override
+  public HorseDetailDto getDetailById(long id, Set<HorseField> fields) throws NotFoundException {
+    LOG.trace("getDetailById({},{})", id, fields);
+    Set<HorseField> fieldset = fields.isEmpty() ? EnumSet.noneOf(HorseField.class) : EnumSet.copyOf(fields);
+    String sql = detailStatements.computeIfAbsent(fieldset, this::buildDetailStatement);
+    List<HorseDetailDto> horses = jdbcTemplate.query(sql, (result, rownum) -> mapDetailRow(result, rownum, fieldset), id);
+
+    if (horses.isEmpty()) {
+      throw new NotFoundException("No horse with ID %d found".formatted(id));
+    }
+    if (horses.size() > 1) {
+      // This should never happen!!
+      throw new FatalException("Too many horses with ID %d found".formatted(id));
+    }
+
+    return horses.get(0);
+  }
+
+  @Override
+  public HorseRevisionDto getRevisionById(long id) throws NotFoundException {
+    LOG.trace("getRevisionById({})", id);
+    List<HorseRevisionDto> revisions = jdbcTemplate.query(SQL_SELECT_REVISION_BY_ID, (result, rownum) ->
+            new HorseRevisionDto(
+                    result.getLong(1),
+                    ResultColumns.nullableLong(result, 2),
+                    ResultColumns.nullableLong(result, 3),
+                    ResultColumns.nullableLong(result, 4)), id);
+    if (revisions.isEmpty()) {
+      throw new NotFoundException("No horse with ID %d found".formatted(id));
+    }
+    return revisions.get(0);
+  }
+
   @Override
   public Horse create(HorseCreateDto horse) {
     LOG.trace("create({})", horse);
@@ -113,25 +205,7 @@ public class HorseJdbcDao implements HorseDao {
     int updated = jdbcTemplate.update(
             connection -> {
               PreparedStatement ps = connection.prepareStatement(SQL_CREATE, Statement.RETURN_GENERATED_KEYS);
-              ps.setString(1, horse.name());
-              ps.setString(2, horse.description());
-              ps.setDate(3, Date.valueOf(horse.dateOfBirth()));
-              ps.setString(4, horse.sex().toString());
-              if (horse.ownerId() == null) {
-                ps.setNull(5, Types.BIGINT);
-              } else {
-                ps.setLong(5, horse.ownerId());
-              }
-              if (horse.motherId() == null) {
-                ps.setNull(6, Types.BIGINT);
-              } else {
-                ps.setLong(6, horse.motherId());
-              }
-              if (horse.fatherId() == null) {
-                ps.setNull(7, Types.BIGINT);
-              } else {
-                ps.setLong(7, horse.fatherId());
-              }
+              setCreateParameters(ps, horse);
               return ps;
             }, keyHolder);
 
@@ -143,17 +217,38 @@ public class HorseJdbcDao implements HorseDao {
       throw new FatalException("Could not generate Id for horse");
     }
 
-    return new Horse()
-            .setId(key.longValue() == 0 ? null : key.longValue())
-            .setName(horse.name())
-            .setDescription(horse.description())
-            .setDateOfBirth(horse.dateOfBirth())
-            .setSex(horse.sex())
-            .setOwnerId(horse.ownerId())
-            .setMotherId(horse.motherId())
-            .setFatherId(horse.fatherId());
-
+    Horse created = createdEntity(key.longValue() == 0 ? null : key.longValue(), horse);
+    AfterCommit.run(() -> pedigreeIndex.put(created));
+    return created;
+  }
 
+  @Override
+  public List<Horse> createAll(List<HorseCreateDto> horses) {
+    LOG.trace("createAll({})", horses.size());
+    List<Horse> created = jdbcTemplate.execute((Connection connection) -> {
+      try (PreparedStatement ps = connection.prepareStatement(SQL_CREATE, Statement.RETURN_GENERATED_KEYS)) {
+        for (HorseCreateDto horse : horses) {
+          setCreateParameters(ps, horse);
+          ps.addBatch();
+        }
+        ps.executeBatch();
+        List<Horse> result = new ArrayList<>(horses.size());
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+          for (HorseCreateDto horse : horses) {
+            if (!keys.next()) {
+              throw new FatalException("Could not generate Id for horse");
+            }
+            result.add(createdEntity(keys.getLong(1), horse));
+          }
+        }
+        return result;
+      }
+    });
+    if (created == null) {
+      throw new FatalException("Could not create Horses");
+    }
+    AfterCommit.run(() -> created.forEach(pedigreeIndex::put));
+    return created;
   }
 
   @Override
@@ -168,62 +263,99 @@ public class HorseJdbcDao implements HorseDao {
     if (updated == 0) {
       throw new FatalException("Could not delete Horse with ID " + id);
     }
+    AfterCommit.run(() -> pedigreeIndex.remove(id));
   }
 
 
   @Override
-  public boolean isParent(HorseDetailDto horse) {
-    LOG.trace("isParent({})", horse);
-    return !getAllChildren(horse).isEmpty();
+  public HorseOffspringDto getOffspringSummary(long id) throws NotFoundException {
+    LOG.trace("getOffspringSummary({})", id);
+    List<HorseOffspringDto> summaries = jdbcTemplate.query(SQL_SELECT_OFFSPRING_SUMMARY, (result, rownum) -> {
+      return new HorseOffspringDto(
+              ResultColumns.sex(result, 1),
+              result.getLong(2),
+              ResultColumns.localDate(result, 3));
+    }, id, id, id);
+    if (summaries.isEmpty()) {
+      throw new NotFoundException("No horse with ID %d found".formatted(id));
+    }
+    return summaries.get(0);
+  }
+
+  @Override
+  public List<Horse> getDescendants(Long id, Long generations) throws NotFoundException {
+    LOG.trace("getDescendants({},{})", id, generations);
+    List<Horse> horses = new ArrayList<>();
+    horses.add(getById(id));
+    Set<Long> visited = new HashSet<>();
+    visited.add(id);
+    List<Long> current = List.of(id);
+    for (long generation = 1; generation <= generations && !current.isEmpty(); generation++) {
+      List<Long> next = new ArrayList<>();
+      for (int from = 0; from < current.size(); from += MAX_IDS_PER_QUERY) {
+        var statementParams = Collections.singletonMap("ids",
+                current.subList(from, Math.min(from + MAX_IDS_PER_QUERY, current.size())));
+        for (Horse child : jdbcNamed.query(SQL_SELECT_ALL_CHILDREN_OF_ALL, statementParams, HorseProjection.LIST::mapRow)) {
+          if (visited.add(child.getId())) {
+            horses.add(child);
+            next.add(child.getId());
+          }
+        }
+      }
+      current = next;
+    }
+    return horses;
   }
 
   @Override
-  public Collection<Horse> getAllChildren(HorseDetailDto horse) {
-    LOG.trace("getAllChildren({})", horse);
-    return jdbcTemplate.query(SQL_SELECT_ALL_CHILDREN, this::mapRow, horse.id(), horse.id());
+  public void exportHorses(ExportWriter writer) throws IOException {
+    LOG.trace("exportHorses()");
+    CursorExport.export(jdbcTemplate, SQL_EXPORT, EXPORT_COLUMNS, writer);
   }
 
+  @Override
   public List<Horse> getFamilyTree(Long id, Long generations) throws NotFoundException {
     LOG.trace("getFamilyTree({})", id);
-    List<Horse> horses = jdbcTemplate.query(SQL_RECURSIVE_TREE, this::mapRow, id, generations);
-    if (horses.isEmpty()) {
+    List<Horse> horses = pedigreeIndex.ancestors(id, generations);
+    if (horses == null) {
       throw new NotFoundException("Horse not Found");
     }
-    if (generations == 0) {
-      //return empty list
-      return new ArrayList<>();
-    }
     return horses;
   }
 
   @Override
   public List<Horse> searchForHorses(HorseSearchDto params) {
     LOG.trace("SearchForHorse({})", params);
-    final String SQL_SEARCH = params.limit() == null ? SQL_SEARCH_WITH_PARAMS : SQL_SEARCH_WITH_PARAMS + SQL_LIMIT;
-    if (params.limit() == null) {
-      return jdbcTemplate.query(SQL_SEARCH, this::mapRow,
-              params.name(), params.name(),
-              params.description(), params.description(),
-              params.sex(), params.sex() != null ? params.sex().toString() : "",
-              params.bornBefore(), params.bornBefore(),
-              params.ownerName(), params.ownerName()
-      );
-    } else {
-      return jdbcTemplate.query(SQL_SEARCH, this::mapRow,
-              params.name(), "%" + params.name() + "%",
-              params.description(), "%" + params.description() + "%",
-              params.sex(), params.sex() != null ? params.sex().toString() : "",
-              params.bornBefore(), params.bornBefore(),
-              params.ownerName(), params.ownerName(),
-              params.limit()
-      );
-    }
+    var query = searchQueryBuilder.build(params, HorseProjection.LIST, null, params.limit(), false);
+    return jdbcTemplate.query(query.sql(), HorseProjection.LIST::mapRow, query.args());
   }
 
   @Override
-  public Horse update(HorseDetailDto horse) throws NotFoundException {
+  public Stream<Horse> streamHorses(HorseSearchDto params, Set<HorseField> fields) {
+    LOG.trace("streamHorses({},{})", params, fields);
+    HorseProjection projection = HorseProjection.of(fields);
+    var query = searchQueryBuilder.build(params, projection, null, params.limit(), false);
+    return jdbcTemplate.queryForStream(connection -> {
+      PreparedStatement ps = connection.prepareStatement(query.sql());
+      ps.setFetchSize(searchFetchSize);
+      new ArgumentPreparedStatementSetter(query.args()).setValues(ps);
+      return ps;
+    }, projection::mapRow);
+  }
+
+  @Override
+  public List<Horse> searchForHorses(HorseSearchDto params, HorseCursor after, int pageSize, Set<HorseField> fields) {
+    LOG.trace("searchForHorses({},{},{},{})", params, after, pageSize, fields);
+    // the name is needed for the cursor of the next page
+    HorseProjection projection = HorseProjection.of(fields).with(HorseProjection.Column.NAME);
+    var query = searchQueryBuilder.build(params, projection, after, pageSize, true);
+    return jdbcTemplate.query(query.sql(), projection::mapRow, query.args());
+  }
+
+  @Override
+  public Horse update(HorseDetailDto horse) throws NotFoundException, ConflictException {
     LOG.trace("update({})", horse);
-    int updated = jdbcTemplate.update(SQL_UPDATE,
+    List<Long> versions = jdbcTemplate.queryForList(SQL_UPDATE, Long.class,
             horse.name(),
             horse.description(),
             horse.dateOfBirth(),
@@ -231,13 +363,20 @@ public class HorseJdbcDao implements HorseDao {
             horse.ownerId(),
             horse.motherId(),
             horse.fatherId(),
-            horse.id());
+            horse.id(),
+            horse.version());
 
-    if (updated == 0) {
-      throw new NotFoundException("Could not update horse with ID " + horse.id() + ", because it does not exist");
+    if (versions.isEmpty()) {
+      List<Long> current = jdbcTemplate.queryForList(SQL_SELECT_VERSION_BY_ID, Long.class, horse.id());
+      if (current.isEmpty()) {
+        throw new NotFoundException("Could not update horse with ID " + horse.id() + ", because it does not exist");
+      }
+      throw new ConflictException("Horse was changed in the meantime", List.of(
+              "Horse was changed by someone else since version %d, it is at version %d now"
+                      .formatted(horse.version(), current.get(0))));
     }
 
-    return new Horse()
+    Horse updatedHorse = new Horse()
             .setId(horse.id())
             .setName(horse.name())
             .setDescription(horse.description())
@@ -246,33 +385,189 @@ public class HorseJdbcDao implements HorseDao {
             .setOwnerId(horse.ownerId())
             .setMotherId(horse.motherId())
             .setFatherId(horse.fatherId())
+            .setVersion(versions.get(0))
             ;
+    AfterCommit.run(() -> pedigreeIndex.put(updatedHorse));
+    return updatedHorse;
   }
 
 
   /**
-   * Maps ResultSet to Object of Horse
+   * Sets the parameters of {@code SQL_CREATE} for the given horse
+   *
+   * @param ps    the prepared insert statement
+   * @param horse the horse to insert
+   * @throws SQLException if a parameter can not be set
+   */
+  private void setCreateParameters(PreparedStatement ps, HorseCreateDto horse) throws SQLException {
+    ps.setString(1, horse.name());
+    ps.setString(2, horse.description());
+    ps.setDate(3, Date.valueOf(horse.dateOfBirth()));
+    ps.setString(4, horse.sex().toString());
+    if (horse.ownerId() == null) {
+      ps.setNull(5, Types.BIGINT);
+    } else {
+      ps.setLong(5, horse.ownerId());
+    }
+    if (horse.motherId() == null) {
+      ps.setNull(6, Types.BIGINT);
+    } else {
+      ps.setLong(6, horse.motherId());
+    }
+    if (horse.fatherId() == null) {
+      ps.setNull(7, Types.BIGINT);
+    } else {
+      ps.setLong(7, horse.fatherId());
+    }
+  }
+
+  /**
+   * Builds the entity of a newly inserted horse
+   *
+   * @param id    the generated ID of the horse
+   * @param horse the data the horse was created from
+   * @return the created horse
+   */
+  private Horse createdEntity(Long id, HorseCreateDto horse) {
+    return new Horse()
+            .setId(id)
+            .setName(horse.name())
+            .setDescription(horse.description())
+            .setDateOfBirth(horse.dateOfBirth())
+            .setSex(horse.sex())
+            .setOwnerId(horse.ownerId())
+            .setMotherId(horse.motherId())
+            .setFatherId(horse.fatherId());
+  }
+
+  /**
+   * Builds the detail query, joining and selecting only what is needed for the given fields.
+   * The ID and version of the horse, and the versions of the joined owner and parents, are always selected,
+   * so the revision of what is selected is known.
+   *
+   * @param fields the requested fields
+   * @return the detail query
+   */
+  private String buildDetailStatement(Set<HorseField> fields) {
+    LOG.debug("Building detail statement for {}", fields);
+    var sql = new StringBuilder(SQL_DETAIL_SELECT);
+    if (fields.contains(HorseField.NAME)) {
+      sql.append(", h.name");
+    }
+    if (fields.contains(HorseField.DESCRIPTION)) {
+      sql.append(", h.description");
+    }
+    if (fields.contains(HorseField.DATE_OF_BIRTH)) {
+      sql.append(", h.date_of_birth");
+    }
+    if (fields.contains(HorseField.SEX)) {
+      sql.append(", h.sex");
+    }
+    if (fields.contains(HorseField.OWNER)) {
+      sql.append(SQL_DETAIL_OWNER_COLUMNS);
+    }
+    if (fields.contains(HorseField.MOTHER)) {
+      sql.append(SQL_DETAIL_MOTHER_COLUMNS);
+    }
+    if (fields.contains(HorseField.FATHER)) {
+      sql.append(SQL_DETAIL_FATHER_COLUMNS);
+    }
+    sql.append(SQL_DETAIL_FROM);
+    if (fields.contains(HorseField.OWNER)) {
+      sql.append(SQL_DETAIL_JOIN_OWNER);
+    }
+    if (fields.contains(HorseField.MOTHER)) {
+      sql.append(SQL_DETAIL_JOIN_MOTHER);
+    }
+    if (fields.contains(HorseField.FATHER)) {
+      sql.append(SQL_DETAIL_JOIN_FATHER);
+    }
+    return sql.append(SQL_DETAIL_WHERE).toString();
+  }
+
+  /**
+   * Maps ResultSet of the detail query to a {@link HorseDetailDto}, including owner and parents, if they were requested
    *
    * @param result ResultSet to map
    * @param rownum number of the current row
-   * @return the result object(Horse) for the current row (may be null)
-   * @throws SQLException if an SQLException is encountered getting column values
+   * @param fields the fields the detail query was built for
+   * @return the result object(HorseDetailDto) for the current row, fields that were not requested are null
+   * @throws FatalException if an SQLException is encountered getting column values
    */
-  private Horse mapRow(ResultSet result, int rownum) throws FatalException {
-    LOG.trace("mapRow({},{})", result, rownum);
+  private HorseDetailDto mapDetailRow(ResultSet result, int rownum, Set<HorseField> fields) throws FatalException {
+    LOG.trace("mapDetailRow({},{},{})", result, rownum, fields);
     try {
-      return new Horse()
-              .setId(result.getLong("id"))
-              .setName(result.getString("name"))
-              .setDescription(result.getString("description"))
-              .setDateOfBirth(result.getDate("date_of_birth").toLocalDate())
-              .setSex(Sex.valueOf(result.getString("sex")))
-              .setOwnerId(result.getObject("owner_id", Long.class))
-              .setMotherId(result.getObject("mother_id", Long.class))
-              .setFatherId(result.getObject("father_id", Long.class))
-              ;
+      int column = 3;
+      String name = fields.contains(HorseField.NAME) ? result.getString(column++) : null;
+      String description = fields.contains(HorseField.DESCRIPTION) ? result.getString(column++) : null;
+      LocalDate dateOfBirth = fields.contains(HorseField.DATE_OF_BIRTH) ? ResultColumns.localDate(result, column++) : null;
+      Sex sex = fields.contains(HorseField.SEX) ? ResultColumns.sex(result, column++) : null;
+      OwnerDto owner = null;
+      if (fields.contains(HorseField.OWNER)) {
+        owner = mapOwner(result, column);
+        column += 5;
+      }
+      HorseParentDto mother = null;
+      if (fields.contains(HorseField.MOTHER)) {
+        mother = mapParent(result, column);
+        column += 6;
+      }
+      HorseParentDto father = fields.contains(HorseField.FATHER) ? mapParent(result, column) : null;
+      return new HorseDetailDto(
+              result.getLong(1),
+              name,
+              description,
+              dateOfBirth,
+              sex,
+              owner,
+              mother,
+              father,
+              result.getLong(2));
     } catch (SQLException e) {
       throw new FatalException(e);
     }
   }
+
+  /**
+   * Maps the columns of the owner in the detail query to a {@link OwnerDto}
+   *
+   * @param result ResultSet to map
+   * @param first  index of the first column of the owner, its ID
+   * @return the owner, or null if the horse has no owner
+   * @throws SQLException if an SQLException is encountered getting column values
+   */
+  private OwnerDto mapOwner(ResultSet result, int first) throws SQLException {
+    Long id = ResultColumns.nullableLong(result, first);
+    if (id == null) {
+      return null;
+    }
+    return new OwnerDto(
+            id,
+            result.getString(first + 1),
+            result.getString(first + 2),
+            result.getString(first + 3),
+            result.getLong(first + 4));
+  }
+
+  /**
+   * Maps the columns of one parent in the detail query to a {@link HorseParentDto}
+   *
+   * @param result ResultSet to map
+   * @param first  index of the first column of the parent, its ID
+   * @return the parent, or null if the horse has no such parent
+   * @throws SQLException if an SQLException is encountered getting column values
+   */
+  private HorseParentDto mapParent(ResultSet result, int first) throws SQLException {
+    Long id = ResultColumns.nullableLong(result, first);
+    if (id == null) {
+      return null;
+    }
+    return new HorseParentDto(
+            id,
+            result.getString(first + 1),
+            result.getString(first + 2),
+            ResultColumns.localDate(result, first + 3),
+            ResultColumns.sex(result, first + 4),
+            result.getLong(first + 5));
+  }
 }
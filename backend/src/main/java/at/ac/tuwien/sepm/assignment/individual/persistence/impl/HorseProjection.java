@@ -0,0 +1,168 @@
+package at.ac.tuwien.sepm.assignment.individual.persistence.impl;
+
+import at.ac.tuwien.sepm.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepm.assignment.individual.exception.FatalException;
+import at.ac.tuwien.sepm.assignment.individual.type.HorseField;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The columns a horse is selected with, in the order they are selected and mapped by index.
+ * Columns that are not part of a projection are never transferred from the persistent data store,
+ * the corresponding properties of the mapped {@link Horse} stay null.
+ *
+ * @param columns the selected columns, in order
+ */
+record HorseProjection(
+        List<Column> columns
+) {
+  /**
+   * Every column of a horse.
+   */
+  static final HorseProjection ENTITY = new HorseProjection(List.of(Column.values()));
+  /**
+   * Every column of a horse but its description, which can be thousands of characters long.
+   */
+  static final HorseProjection LIST = new HorseProjection(List.of(
+          Column.ID, Column.NAME, Column.DATE_OF_BIRTH, Column.SEX,
+          Column.OWNER_ID, Column.MOTHER_ID, Column.FATHER_ID, Column.VERSION));
+
+  /**
+   * Get the projection of the columns needed for the given fields of a horse.
+   * The ID is always selected.
+   *
+   * @param fields the requested fields
+   * @return the projection selecting the columns of {@code fields}, in the order of {@link Column}
+   */
+  static HorseProjection of(Set<HorseField> fields) {
+    List<Column> columns = new ArrayList<>();
+    for (Column column : Column.values()) {
+      if (column == Column.ID || fields.contains(column.field)) {
+        columns.add(column);
+      }
+    }
+    return new HorseProjection(List.copyOf(columns));
+  }
+
+  /**
+   * Get the projection with the given column added, if it is not part of it already.
+   *
+   * @param column the column to add
+   * @return the projection selecting {@code column} too
+   */
+  HorseProjection with(Column column) {
+    if (columns.contains(column)) {
+      return this;
+    }
+    List<Column> added = new ArrayList<>(columns);
+    added.add(column);
+    return new HorseProjection(List.copyOf(added));
+  }
+
+  /**
+   * Get the select list of this projection.
+   *
+   * @param table the name or alias of the horse table, the columns are qualified with
+   * @return the comma separated, qualified columns
+   */
+  String select(String table) {
+    return columns.stream()
+            .map(column -> table + "." + column.name)
+            .collect(Collectors.joining(", "));
+  }
+
+  /**
+   * Maps ResultSet to Object of Horse, reading the columns of this projection by their index
+   *
+   * @param result ResultSet to map
+   * @param rownum number of the current row
+   * @return the result object(Horse) for the current row
+   * @throws FatalException if an SQLException is encountered getting column values
+   */
+  Horse mapRow(ResultSet result, int rownum) throws FatalException {
+    try {
+      Horse horse = new Horse();
+      for (int i = 0; i < columns.size(); i++) {
+        columns.get(i).read(result, i + 1, horse);
+      }
+      return horse;
+    } catch (SQLException e) {
+      throw new FatalException(e);
+    }
+  }
+
+  /**
+   * A column of the horse table, together with the field it belongs to and how it is read.
+   */
+  enum Column {
+    ID("id", HorseField.ID) {
+      @Override
+      void read(ResultSet result, int column, Horse horse) throws SQLException {
+        horse.setId(result.getLong(column));
+      }
+    },
+    NAME("name", HorseField.NAME) {
+      @Override
+      void read(ResultSet result, int column, Horse horse) throws SQLException {
+        horse.setName(result.getString(column));
+      }
+    },
+    DATE_OF_BIRTH("date_of_birth", HorseField.DATE_OF_BIRTH) {
+      @Override
+      void read(ResultSet result, int column, Horse horse) throws SQLException {
+        horse.setDateOfBirth(ResultColumns.localDate(result, column));
+      }
+    },
+    SEX("sex", HorseField.SEX) {
+      @Override
+      void read(ResultSet result, int column, Horse horse) throws SQLException {
+        horse.setSex(ResultColumns.sex(result, column));
+      }
+    },
+    OWNER_ID("owner_id", HorseField.OWNER) {
+      @Override
+      void read(ResultSet result, int column, Horse horse) throws SQLException {
+        horse.setOwnerId(ResultColumns.nullableLong(result, column));
+      }
+    },
+    MOTHER_ID("mother_id", HorseField.MOTHER) {
+      @Override
+      void read(ResultSet result, int column, Horse horse) throws SQLException {
+        horse.setMotherId(ResultColumns.nullableLong(result, column));
+      }
+    },
+    FATHER_ID("father_id", HorseField.FATHER) {
+      @Override
+      void read(ResultSet result, int column, Horse horse) throws SQLException {
+        horse.setFatherId(ResultColumns.nullableLong(result, column));
+      }
+    },
+    VERSION("version", HorseField.VERSION) {
+      @Override
+      void read(ResultSet result, int column, Horse horse) throws SQLException {
+        horse.setVersion(result.getLong(column));
+      }
+    },
+    DESCRIPTION("description", HorseField.DESCRIPTION) {
+      @Override
+      void read(ResultSet result, int column, Horse horse) throws SQLException {
+        horse.setDescription(result.getString(column));
+      }
+    };
+
+    private final String name;
+    private final HorseField field;
+
+    Column(String name, HorseField field) {
+      this.name = name;
+      this.field = field;
+    }
+
+    abstract void read(ResultSet result, int column, Horse horse) throws SQLException;
+  }
+}
@@ -0,0 +1,178 @@
+package at.ac.tuwien.sepm.assignment.individual.persistence.impl;
+
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseCursor;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseSearchDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds the SQL statements for searching horses.
+ * <p>
+ * Only the predicates and joins of the filters actually given in a {@link HorseSearchDto} are emitted,
+ * so the query planner can pick a plan, and the indexes on the filtered columns, for each combination of filters.
+ * The statement text only depends on which filters are given and which columns are selected (the shape of the search),
+ * so it is built once per shape and cached.
+ * </p>
+ */
+@Component
+public class HorseSearchQueryBuilder {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final String TABLE_NAME = "horse";
+  private static final String ID_COLUMN = TABLE_NAME + ".id";
+  private static final String SQL_SELECT = "SELECT ";
+  private static final String SQL_FROM = " FROM " + TABLE_NAME;
+  private static final String SQL_JOIN_OWNER = " JOIN owner ON " + TABLE_NAME + ".owner_id = owner.id"
+          + " AND UPPER(owner.first_name||' '||owner.last_name) LIKE UPPER('%'||?||'%')";
+  private static final String SQL_WHERE = " WHERE TRUE";
+  private static final String SQL_NAME = " AND UPPER(" + TABLE_NAME + ".name) LIKE UPPER('%'||?||'%')";
+  private static final String SQL_DESCRIPTION = " AND UPPER(" + TABLE_NAME + ".description) LIKE UPPER('%'||?||'%')";
+  private static final String SQL_SEX = " AND " + TABLE_NAME + ".sex = ?";
+  private static final String SQL_BORN_BEFORE = " AND " + TABLE_NAME + ".date_of_birth < ?";
+  private static final String SQL_AFTER_CURSOR = " AND (" + TABLE_NAME + ".name > ?"
+          + " OR (" + TABLE_NAME + ".name = ? AND " + ID_COLUMN + " > ?))";
+  private static final String SQL_ORDER = " ORDER BY " + TABLE_NAME + ".name, " + ID_COLUMN;
+  private static final String SQL_LIMIT = " LIMIT ?";
+
+  private final HorseTrigramIndex trigramIndex;
+  private final Map<Shape, String> statements = new ConcurrentHashMap<>();
+
+  public HorseSearchQueryBuilder(HorseTrigramIndex trigramIndex) {
+    this.trigramIndex = trigramIndex;
+  }
+
+  /**
+   * Build the search query for the given parameters.
+   *
+   * @param params     the search parameters, {@code params.limit} is ignored in favour of {@code limit}
+   * @param projection the columns to select
+   * @param after      if not null, only horses ordered after this position are returned
+   * @param limit      the maximum number of horses to return, null for no limit
+   * @param ordered    whether the horses are ordered by name and ID, which is implied by {@code after}
+   * @return the statement and its arguments
+   */
+  Query build(HorseSearchDto params, HorseProjection projection, HorseCursor after, Integer limit, boolean ordered) {
+    LOG.trace("build({},{},{},{},{})", params, projection, after, limit, ordered);
+    List<String> nameTrigrams = trigramIndex.searchTrigrams(params.name());
+    List<String> descriptionTrigrams = trigramIndex.searchTrigrams(params.description());
+    Shape shape = new Shape(
+            projection,
+            params.name() != null,
+            nameTrigrams.size(),
+            params.description() != null,
+            descriptionTrigrams.size(),
+            params.sex() != null,
+            params.bornBefore() != null,
+            params.ownerName() != null,
+            after != null,
+            ordered || after != null,
+            limit != null);
+
+    // the arguments are added in the same order as the placeholders in buildStatement
+    List<Object> args = new ArrayList<>();
+    if (shape.ownerName()) {
+      args.add(params.ownerName());
+    }
+    if (shape.name()) {
+      args.add(params.name());
+      addTrigramArguments(args, HorseTrigramIndex.FIELD_NAME, nameTrigrams);
+    }
+    if (shape.description()) {
+      args.add(params.description());
+      addTrigramArguments(args, HorseTrigramIndex.FIELD_DESCRIPTION, descriptionTrigrams);
+    }
+    if (shape.sex()) {
+      args.add(params.sex().toString());
+    }
+    if (shape.bornBefore()) {
+      args.add(params.bornBefore());
+    }
+    if (shape.after()) {
+      args.add(after.name());
+      args.add(after.name());
+      args.add(after.id());
+    }
+    if (shape.limit()) {
+      args.add(limit);
+    }
+    return new Query(statements.computeIfAbsent(shape, this::buildStatement), args.toArray());
+  }
+
+  private void addTrigramArguments(List<Object> args, String field, List<String> trigrams) {
+    if (!trigrams.isEmpty()) {
+      args.add(field);
+      args.addAll(trigrams);
+      args.add(trigrams.size());
+    }
+  }
+
+  private String buildStatement(Shape shape) {
+    LOG.debug("Building search statement for {}", shape);
+    var sql = new StringBuilder(SQL_SELECT).append(shape.projection().select(TABLE_NAME)).append(SQL_FROM);
+    if (shape.ownerName()) {
+      sql.append(SQL_JOIN_OWNER);
+    }
+    sql.append(SQL_WHERE);
+    if (shape.name()) {
+      sql.append(SQL_NAME);
+      sql.append(trigramIndex.containsCondition(ID_COLUMN, shape.nameTrigrams()));
+    }
+    if (shape.description()) {
+      sql.append(SQL_DESCRIPTION);
+      sql.append(trigramIndex.containsCondition(ID_COLUMN, shape.descriptionTrigrams()));
+    }
+    if (shape.sex()) {
+      sql.append(SQL_SEX);
+    }
+    if (shape.bornBefore()) {
+      sql.append(SQL_BORN_BEFORE);
+    }
+    if (shape.after()) {
+      sql.append(SQL_AFTER_CURSOR);
+    }
+    if (shape.ordered()) {
+      sql.append(SQL_ORDER);
+    }
+    if (shape.limit()) {
+      sql.append(SQL_LIMIT);
+    }
+    return sql.toString();
+  }
+
+  /**
+   * A search statement together with its arguments.
+   *
+   * @param sql  the statement text
+   * @param args the arguments for the placeholders in {@code sql}
+   */
+  public record Query(
+          String sql,
+          Object[] args
+  ) {
+  }
+
+  /**
+   * Which columns, filters and clauses a search uses. Searches of the same shape share their statement text.
+   */
+  private record Shape(
+          HorseProjection projection,
+          boolean name,
+          int nameTrigrams,
+          boolean description,
+          int descriptionTrigrams,
+          boolean sex,
+          boolean bornBefore,
+          boolean ownerName,
+          boolean after,
+          boolean ordered,
+          boolean limit
+  ) {
+  }
+}
@@ -0,0 +1,150 @@
+package at.ac.tuwien.sepm.assignment.individual.persistence.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Trigram index over the name and description of horses, used to speed up substring search.
+ * <p>
+ * The index is stored in the side table {@code horse_trigram}, which holds every distinct trigram
+ * of the upper-cased name and description of every horse.
+ * It is maintained by {@link HorseTrigramTrigger} on every insert and update of a horse,
+ * and cleared by cascading deletes.
+ * A substring search intersects the posting lists of the trigrams of the search string,
+ * before the candidates are verified with {@code LIKE}.
+ * </p>
+ */
+@Component
+public class HorseTrigramIndex {
+  /**
+   * Value of {@code horse_trigram.field} for trigrams of the name of a horse.
+   */
+  public static final String FIELD_NAME = "N";
+  /**
+   * Value of {@code horse_trigram.field} for trigrams of the description of a horse.
+   */
+  public static final String FIELD_DESCRIPTION = "D";
+
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int GRAM_LENGTH = 3;
+  private static final int MAX_SEARCH_TRIGRAMS = 8;
+  private static final String TABLE_NAME = "horse_trigram";
+  private static final int BACKFILL_BATCH_SIZE = 1000;
+  // the trigger skips updates that leave name and description as they are, so the backfill writes the trigrams itself
+  private static final String SQL_SELECT_UNINDEXED = "SELECT id, name, description FROM horse"
+          + " WHERE NOT EXISTS (SELECT 1 FROM " + TABLE_NAME + " t WHERE t.horse_id = horse.id)"
+          + " AND (LENGTH(name) >= " + GRAM_LENGTH + " OR LENGTH(description) >= " + GRAM_LENGTH + ")";
+  private static final String SQL_INSERT = "INSERT INTO " + TABLE_NAME + " (field, trigram, horse_id) VALUES (?, ?, ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public HorseTrigramIndex(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * Index all horses that are not contained in the index yet,
+   * like horses stored before the index existed.
+   * The horses are read one by one, their trigrams are inserted in batches of about {@value #BACKFILL_BATCH_SIZE} rows.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void backfill() {
+    LOG.trace("backfill()");
+    List<Object[]> batch = new ArrayList<>(BACKFILL_BATCH_SIZE);
+    AtomicInteger indexed = new AtomicInteger();
+    jdbcTemplate.query(SQL_SELECT_UNINDEXED, result -> {
+      long id = result.getLong(1);
+      addTrigrams(batch, id, FIELD_NAME, result.getString(2));
+      addTrigrams(batch, id, FIELD_DESCRIPTION, result.getString(3));
+      indexed.incrementAndGet();
+      if (batch.size() >= BACKFILL_BATCH_SIZE) {
+        jdbcTemplate.batchUpdate(SQL_INSERT, batch);
+        batch.clear();
+      }
+    });
+    if (!batch.isEmpty()) {
+      jdbcTemplate.batchUpdate(SQL_INSERT, batch);
+    }
+    if (indexed.get() > 0) {
+      LOG.info("Added {} horses to the trigram index", indexed.get());
+    }
+  }
+
+  private static void addTrigrams(List<Object[]> batch, long id, String field, String text) {
+    for (String trigram : trigrams(text)) {
+      batch.add(new Object[] {field, trigram, id});
+    }
+  }
+
+  /**
+   * Get the trigrams to look up in the index, when searching for {@code value} as a substring.
+   * At most {@value #MAX_SEARCH_TRIGRAMS} trigrams, spread evenly over {@code value}, are used,
+   * as the candidates are verified with {@code LIKE} anyway.
+   *
+   * @param value the substring searched for, may be null
+   * @return the trigrams to look up, empty if {@code value} is too short to contain a trigram
+   */
+  public List<String> searchTrigrams(String value) {
+    List<String> trigrams = new ArrayList<>(trigrams(value));
+    if (trigrams.size() <= MAX_SEARCH_TRIGRAMS) {
+      return trigrams;
+    }
+    List<String> spread = new ArrayList<>(MAX_SEARCH_TRIGRAMS);
+    for (int i = 0; i < MAX_SEARCH_TRIGRAMS; i++) {
+      spread.add(trigrams.get(i * trigrams.size() / MAX_SEARCH_TRIGRAMS));
+    }
+    return spread;
+  }
+
+  /**
+   * Build the condition restricting a search to the horses, that contain all of {@code trigramCount} trigrams
+   * in a field.
+   * The placeholders are, in order: the field ({@link #FIELD_NAME} or {@link #FIELD_DESCRIPTION}),
+   * the trigrams and the number of trigrams.
+   * Nothing is returned if there are no trigrams,
+   * so the query then has to rely on its {@code LIKE} predicate alone.
+   *
+   * @param idColumn     the qualified ID column of the horse table in the query
+   * @param trigramCount the number of trigrams, as returned by {@link #searchTrigrams(String)}
+   * @return the condition, starting with {@code AND}, or an empty string
+   */
+  public String containsCondition(String idColumn, int trigramCount) {
+    if (trigramCount == 0) {
+      return "";
+    }
+    return " AND " + idColumn + " IN (SELECT horse_id FROM " + TABLE_NAME
+            + " WHERE field = ? AND trigram IN (" + String.join(", ", Collections.nCopies(trigramCount, "?")) + ")"
+            + " GROUP BY horse_id HAVING COUNT(*) = ?)";
+  }
+
+  /**
+   * Get all distinct trigrams of the given text, ignoring case.
+   *
+   * @param text the text to split, may be null
+   * @return the distinct trigrams of {@code text}, empty if it is null or shorter than three characters
+   */
+  public static Set<String> trigrams(String text) {
+    if (text == null || text.length() < GRAM_LENGTH) {
+      return Set.of();
+    }
+    String upper = text.toUpperCase(Locale.ROOT);
+    Set<String> trigrams = new LinkedHashSet<>();
+    for (int i = 0; i + GRAM_LENGTH <= upper.length(); i++) {
+      trigrams.add(upper.substring(i, i + GRAM_LENGTH));
+    }
+    return trigrams;
+  }
+}
@@ -0,0 +1,53 @@
+package at.ac.tuwien.sepm.assignment.individual.persistence.impl;
+
+import org.h2.tools.TriggerAdapter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * H2 trigger keeping {@code horse_trigram} current, see {@link HorseTrigramIndex}.
+ * Fires after every insert and update of a horse, no matter if it was written by the DAO or a plain SQL script.
+ * Deleted horses are removed from the index by the cascading foreign key.
+ */
+public class HorseTrigramTrigger extends TriggerAdapter {
+  private static final String SQL_DELETE = "DELETE FROM horse_trigram WHERE horse_id = ?";
+  private static final String SQL_INSERT = "INSERT INTO horse_trigram (field, trigram, horse_id) VALUES (?, ?, ?)";
+
+  @Override
+  public void fire(Connection connection, ResultSet oldRow, ResultSet newRow) throws SQLException {
+    if (oldRow != null && newRow != null
+            && Objects.equals(oldRow.getString("name"), newRow.getString("name"))
+            && Objects.equals(oldRow.getString("description"), newRow.getString("description"))
+            && oldRow.getLong("id") == newRow.getLong("id")) {
+      // nothing indexed has changed
+      return;
+    }
+    if (oldRow != null) {
+      try (PreparedStatement delete = connection.prepareStatement(SQL_DELETE)) {
+        delete.setLong(1, oldRow.getLong("id"));
+        delete.executeUpdate();
+      }
+    }
+    if (newRow != null) {
+      long id = newRow.getLong("id");
+      try (PreparedStatement insert = connection.prepareStatement(SQL_INSERT)) {
+        addTrigrams(insert, id, HorseTrigramIndex.FIELD_NAME, newRow.getString("name"));
+        addTrigrams(insert, id, HorseTrigramIndex.FIELD_DESCRIPTION, newRow.getString("description"));
+        insert.executeBatch();
+      }
+    }
+  }
+
+  private void addTrigrams(PreparedStatement insert, long id, String field, String text) throws SQLException {
+    for (String trigram : HorseTrigramIndex.trigrams(text)) {
+      insert.setString(1, field);
+      insert.setString(2, trigram);
+      insert.setLong(3, id);
+      insert.addBatch();
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package at.ac.tuwien.sepm.assignment.individual.persistence.impl;
+
+import at.ac.tuwien.sepm.assignment.individual.entity.Owner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded in-memory cache of owners by their ID, used by {@link OwnerJdbcDao} to read through.
+ * <p>
+ * Owners change rarely, but are looked up for almost every horse that is shown.
+ * The cache holds at most {@code owner.cache.max-size} owners, evicting the least recently used one first,
+ * and every owner for at most {@code owner.cache.ttl}, so changes made behind the back of the DAO
+ * become visible eventually.
+ * </p>
+ */
+@Component
+public class OwnerCache {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private final int maxSize;
+  private final long ttlNanos;
+  private final Map<Long, Entry> entries;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public OwnerCache(
+          @Value("${owner.cache.max-size:1000}") int maxSize,
+          @Value("${owner.cache.ttl:PT5M}") Duration ttl) {
+    this.maxSize = maxSize;
+    this.ttlNanos = ttl.toNanos();
+    // access ordered, so the eldest entry is the least recently used one
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+        if (size() > OwnerCache.this.maxSize) {
+          evictions.increment();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Get the cached owner with the given ID.
+   *
+   * @param id the ID of the owner
+   * @return the owner, or null if it is not cached (anymore)
+   */
+  public synchronized Owner get(long id) {
+    Entry entry = entries.get(id);
+    if (entry != null && entry.isExpired(System.nanoTime())) {
+      entries.remove(id);
+      evictions.increment();
+      entry = null;
+    }
+    if (entry == null) {
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    return entry.owner();
+  }
+
+  /**
+   * Get all cached owners with the given IDs.
+   *
+   * @param ids the IDs of the owners
+   * @return the cached owners by their ID, without the IDs which are not cached
+   */
+  public synchronized Map<Long, Owner> getAll(Collection<Long> ids) {
+    Map<Long, Owner> found = new HashMap<>();
+    for (Long id : ids) {
+      Owner owner = get(id);
+      if (owner != null) {
+        found.put(id, owner);
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Add an owner to the cache, or replace the cached owner with the same ID.
+   *
+   * @param owner the owner as it is stored in the persistent data store
+   */
+  public synchronized void put(Owner owner) {
+    entries.put(owner.getId(), new Entry(owner, System.nanoTime() + ttlNanos));
+  }
+
+  /**
+   * Remove the owner with the given ID from the cache, if it is cached.
+   *
+   * @param id the ID of the owner
+   */
+  public synchronized void invalidate(long id) {
+    LOG.trace("invalidate({})", id);
+    entries.remove(id);
+  }
+
+  /**
+   * Remove all owners from the cache.
+   */
+  public synchronized void invalidateAll() {
+    LOG.trace("invalidateAll()");
+    entries.clear();
+  }
+
+  /**
+   * Get the statistics of the cache since the application started.
+   *
+   * @return the current statistics
+   */
+  public synchronized Stats stats() {
+    return new Stats(hits.sum(), misses.sum(), evictions.sum(), entries.size());
+  }
+
+  private record Entry(
+          Owner owner,
+          long expiresAt
+  ) {
+    boolean isExpired(long now) {
+      return now - expiresAt >= 0;
+    }
+  }
+
+  /**
+   * Statistics of the owner cache.
+   *
+   * @param hits      number of lookups served from the cache
+   * @param misses    number of lookups not served from the cache
+   * @param evictions number of owners removed because the cache was full or they expired
+   * @param size      number of owners currently cached
+   */
+  public record Stats(
+          long hits,
+          long misses,
+          long evictions,
+          int size
+  ) {
+    public double hitRatio() {
+      long lookups = hits + misses;
+      return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+  }
+}
@@ -5,6 +5,8 @@ import at.ac.tuwien.sepm.assignment.individual.dto.OwnerSearchDto;
 import at.ac.tuwien.sepm.assignment.individual.entity.Owner;
 import at.ac.tuwien.sepm.assignment.individual.exception.FatalException;
 import at.ac.tuwien.sepm.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepm.assignment.individual.export.ExportWriter;
+import at.ac.tuwien.sepm.assignment.individual.persistence.AfterCommit;
 import at.ac.tuwien.sepm.assignment.individual.persistence.OwnerDao;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,6 +15,7 @@ import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
 
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -22,30 +25,41 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 public class OwnerJdbcDao implements OwnerDao {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private static final String TABLE_NAME = "owner";
-  private static final String SQL_SELECT_BY_ID = "SELECT * FROM " + TABLE_NAME + " WHERE id = ?";
-  private static final String SQL_SELECT_ALL = "SELECT * FROM " + TABLE_NAME + " WHERE id IN (:ids)";
-  private static final String SQL_SELECT_SEARCH = "SELECT * FROM " + TABLE_NAME
+  // the columns of an owner, in the order mapRow reads them
+  private static final String COLUMNS = "id, first_name, last_name, email, version";
+  private static final String SQL_SELECT_BY_ID = "SELECT " + COLUMNS + " FROM " + TABLE_NAME + " WHERE id = ?";
+  private static final String SQL_SELECT_ALL = "SELECT " + COLUMNS + " FROM " + TABLE_NAME + " WHERE id IN (:ids)";
+  private static final String SQL_SELECT_SEARCH = "SELECT " + COLUMNS + " FROM " + TABLE_NAME
           + " WHERE UPPER(first_name||' '||last_name) like UPPER('%'||COALESCE(?, '')||'%')";
   private static final String SQL_SELECT_SEARCH_LIMIT_CLAUSE = " LIMIT ?";
+  private static final List<String> EXPORT_COLUMNS = List.of("id", "first_name", "last_name", "email");
+  private static final String SQL_EXPORT = "SELECT id, first_name, last_name, email FROM " + TABLE_NAME + " ORDER BY id";
   private static final String SQL_CREATE = "INSERT INTO " + TABLE_NAME + " (first_name, last_name, email) VALUES (?, ?, ?)";
 
   private final JdbcTemplate jdbcTemplate;
   private final NamedParameterJdbcTemplate jdbcNamed;
+  private final OwnerCache cache;
 
-  public OwnerJdbcDao(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate jdbcNamed) {
+  public OwnerJdbcDao(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate jdbcNamed, OwnerCache cache) {
     this.jdbcTemplate = jdbcTemplate;
     this.jdbcNamed = jdbcNamed;
+    this.cache = cache;
   }
 
 
   @Override
   public Owner getById(long id) throws NotFoundException {
     LOG.trace("getById({})", id);
+    Owner cached = cache.get(id);
+    if (cached != null) {
+      return cached;
+    }
     List<Owner> owners = jdbcTemplate.query(SQL_SELECT_BY_ID, this::mapRow, id);
     if (owners.isEmpty()) {
       throw new NotFoundException("Owner with ID %d not found".formatted(id));
@@ -54,6 +68,7 @@ public class OwnerJdbcDao implements OwnerDao {
       // If this happens, something is wrong with either the DB or the select
       throw new FatalException("Found more than one owner with ID %d".formatted(id));
     }
+    cache.put(owners.get(0));
     return owners.get(0);
   }
 
@@ -75,6 +90,8 @@ public class OwnerJdbcDao implements OwnerDao {
       // This should never happen. If it does, something is wrong with the DB or the way the prepared statement is set up.
       throw new FatalException("Could not extract key for newly created owner. There is probably a programming error…");
     }
+    // the ID may have been used before, if the data store was reset behind the back of the DAO
+    AfterCommit.run(() -> cache.invalidate(key.longValue()));
 
     return new Owner()
             .setId(key.longValue())
@@ -87,8 +104,25 @@ public class OwnerJdbcDao implements OwnerDao {
   @Override
   public Collection<Owner> getAllById(Collection<Long> ids) {
     LOG.trace("getAllById({})", ids);
-    var statementParams = Collections.singletonMap("ids", ids);
-    return jdbcNamed.query(SQL_SELECT_ALL, statementParams, this::mapRow);
+    Map<Long, Owner> owners = cache.getAll(ids);
+    List<Long> missing = ids.stream()
+            .filter(id -> !owners.containsKey(id))
+            .distinct()
+            .toList();
+    if (!missing.isEmpty()) {
+      var statementParams = Collections.singletonMap("ids", missing);
+      for (Owner owner : jdbcNamed.query(SQL_SELECT_ALL, statementParams, this::mapRow)) {
+        cache.put(owner);
+        owners.put(owner.getId(), owner);
+      }
+    }
+    return owners.values();
+  }
+
+  @Override
+  public void exportOwners(ExportWriter writer) throws IOException {
+    LOG.trace("exportOwners()");
+    CursorExport.export(jdbcTemplate, SQL_EXPORT, EXPORT_COLUMNS, writer);
   }
 
   @Override
@@ -117,10 +151,11 @@ public class OwnerJdbcDao implements OwnerDao {
     LOG.trace("mapRow({},{})", resultSet, i);
     try {
       return new Owner()
-              .setId(resultSet.getLong("id"))
-              .setFirstName(resultSet.getString("first_name"))
-              .setLastName(resultSet.getString("last_name"))
-              .setEmail(resultSet.getString("email"))
+              .setId(resultSet.getLong(1))
+              .setFirstName(resultSet.getString(2))
+              .setLastName(resultSet.getString(3))
+              .setEmail(resultSet.getString(4))
+              .setVersion(resultSet.getLong(5))
               ;
     } catch (SQLException e) {
       throw new FatalException(e);
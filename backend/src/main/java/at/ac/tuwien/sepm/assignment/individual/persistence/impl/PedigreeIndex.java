@@ -0,0 +1,265 @@
+package at.ac.tuwien.sepm.assignment.individual.persistence.impl;
+
+import at.ac.tuwien.sepm.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepm.assignment.individual.exception.FatalException;
+import at.ac.tuwien.sepm.assignment.individual.type.Sex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of the pedigree graph.
+ * Maps the ID of every horse to the IDs of its parents together with the data needed
+ * for a node of a family tree, so ancestors can be walked without querying the persistent data store.
+ * <p>
+ * The index is loaded once at startup and kept current by {@link HorseJdbcDao}, as soon as its changes are committed.
+ * Horses written to the data store by other means (SQL scripts, H2 console) are loaded
+ * on demand the first time they are looked up.
+ * </p>
+ * <p>
+ * Lookups never block. Changes are applied while holding the lock of the index, together with reloads,
+ * so a change committed during a reload is applied to the reloaded index, and never lost.
+ * The children of every horse are indexed too, so removing a horse only touches its own children.
+ * </p>
+ */
+@Component
+public class PedigreeIndex {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final String TABLE_NAME = "horse";
+  // the columns of a node, in the order mapRow reads them
+  private static final String SQL_SELECT_ALL_NODES =
+          "SELECT id, name, date_of_birth, sex, mother_id, father_id, version FROM " + TABLE_NAME;
+  private static final String SQL_SELECT_NODE_BY_ID = SQL_SELECT_ALL_NODES + " WHERE id = ?";
+
+  private final JdbcTemplate jdbcTemplate;
+  private volatile Map<Long, Node> nodes = new ConcurrentHashMap<>();
+  // the IDs of the children of every horse, only accessed while holding the lock of the index
+  private Map<Long, Set<Long>> children = new HashMap<>();
+
+  public PedigreeIndex(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * (Re)load the whole index from the persistent data store.
+   * Called once the application is ready, and whenever the data store was changed behind the back of the DAO.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void reload() {
+    LOG.trace("reload()");
+    Map<Long, Node> loaded = new ConcurrentHashMap<>();
+    Map<Long, Set<Long>> loadedChildren = new HashMap<>();
+    jdbcTemplate.query(SQL_SELECT_ALL_NODES, (result) -> {
+      Node node = mapRow(result, 0);
+      loaded.put(node.id(), node);
+      link(loadedChildren, node);
+    });
+    nodes = loaded;
+    children = loadedChildren;
+    LOG.debug("Loaded pedigree index with {} horses", loaded.size());
+  }
+
+  /**
+   * Add the given horse to the index, or replace the entry of the horse with the same ID.
+   *
+   * @param horse the horse as it is now stored in the persistent data store
+   */
+  public synchronized void put(Horse horse) {
+    LOG.trace("put({})", horse);
+    Node node = new Node(
+            horse.getId(),
+            horse.getName(),
+            horse.getDateOfBirth(),
+            horse.getSex(),
+            horse.getMotherId(),
+            horse.getFatherId(),
+            horse.getVersion());
+    Node previous = nodes.put(node.id(), node);
+    if (previous != null) {
+      unlink(children, previous);
+    }
+    link(children, node);
+  }
+
+  /**
+   * Remove the horse with the given ID from the index,
+   * and clear the references of its children, like the persistent data store does.
+   *
+   * @param id the ID of the removed horse
+   */
+  public synchronized void remove(long id) {
+    LOG.trace("remove({})", id);
+    Node removed = nodes.remove(id);
+    if (removed != null) {
+      unlink(children, removed);
+    }
+    Set<Long> orphans = children.remove(id);
+    if (orphans != null) {
+      for (Long childId : orphans) {
+        nodes.computeIfPresent(childId, (key, child) -> child.withoutParent(id));
+      }
+    }
+  }
+
+  /**
+   * Get the horse with the given ID and all of its ancestors up to the given generation.
+   * Every ancestor is contained only once, even if it appears several times in the tree.
+   *
+   * @param id          the ID of the root horse
+   * @param generations number of generations to include, the root horse being the first generation
+   * @return the root horse followed by its ancestors, or {@code null} if there is no horse with the given ID
+   */
+  public List<Horse> ancestors(long id, long generations) {
+    LOG.trace("ancestors({},{})", id, generations);
+    Node root = lookup(id);
+    if (root == null) {
+      return null;
+    }
+    List<Horse> horses = new ArrayList<>();
+    if (generations <= 0) {
+      return horses;
+    }
+    Set<Long> visited = new HashSet<>();
+    Deque<Node> current = new ArrayDeque<>();
+    visited.add(root.id());
+    current.add(root);
+    for (long generation = 1; !current.isEmpty(); generation++) {
+      Deque<Node> next = new ArrayDeque<>();
+      for (Node node : current) {
+        horses.add(node.toEntity());
+        if (generation < generations) {
+          enqueue(node.motherId(), visited, next);
+          enqueue(node.fatherId(), visited, next);
+        }
+      }
+      current = next;
+    }
+    return horses;
+  }
+
+  private void enqueue(Long parentId, Set<Long> visited, Deque<Node> next) {
+    if (parentId != null && visited.add(parentId)) {
+      Node parent = lookup(parentId);
+      if (parent != null) {
+        next.add(parent);
+      }
+    }
+  }
+
+  private Node lookup(long id) {
+    Node node = nodes.get(id);
+    if (node == null) {
+      List<Node> found = jdbcTemplate.query(SQL_SELECT_NODE_BY_ID, this::mapRow, id);
+      if (found.isEmpty()) {
+        return null;
+      }
+      node = add(found.get(0));
+    }
+    return node;
+  }
+
+  /**
+   * Add a node loaded on demand, unless a change of the same horse was applied in the meantime.
+   */
+  private synchronized Node add(Node node) {
+    Node present = nodes.putIfAbsent(node.id(), node);
+    if (present != null) {
+      return present;
+    }
+    link(children, node);
+    return node;
+  }
+
+  private static void link(Map<Long, Set<Long>> children, Node node) {
+    if (node.motherId() != null) {
+      children.computeIfAbsent(node.motherId(), parentId -> new HashSet<>()).add(node.id());
+    }
+    if (node.fatherId() != null) {
+      children.computeIfAbsent(node.fatherId(), parentId -> new HashSet<>()).add(node.id());
+    }
+  }
+
+  private static void unlink(Map<Long, Set<Long>> children, Node node) {
+    unlink(children, node.motherId(), node.id());
+    unlink(children, node.fatherId(), node.id());
+  }
+
+  private static void unlink(Map<Long, Set<Long>> children, Long parentId, long childId) {
+    if (parentId == null) {
+      return;
+    }
+    Set<Long> siblings = children.get(parentId);
+    if (siblings != null) {
+      siblings.remove(childId);
+      if (siblings.isEmpty()) {
+        children.remove(parentId);
+      }
+    }
+  }
+
+  private Node mapRow(ResultSet result, int rownum) throws FatalException {
+    try {
+      return new Node(
+              result.getLong(1),
+              result.getString(2),
+              ResultColumns.localDate(result, 3),
+              ResultColumns.sex(result, 4),
+              ResultColumns.nullableLong(result, 5),
+              ResultColumns.nullableLong(result, 6),
+              result.getLong(7));
+    } catch (SQLException e) {
+      throw new FatalException(e);
+    }
+  }
+
+  /**
+   * A single horse in the pedigree graph.
+   */
+  private record Node(
+          long id,
+          String name,
+          LocalDate dateOfBirth,
+          Sex sex,
+          Long motherId,
+          Long fatherId,
+          long version
+  ) {
+    Node withoutParent(long parentId) {
+      boolean isMother = motherId != null && motherId == parentId;
+      boolean isFather = fatherId != null && fatherId == parentId;
+      if (!isMother && !isFather) {
+        return this;
+      }
+      return new Node(id, name, dateOfBirth, sex, isMother ? null : motherId, isFather ? null : fatherId, version);
+    }
+
+    Horse toEntity() {
+      return new Horse()
+              .setId(id)
+              .setName(name)
+              .setDateOfBirth(dateOfBirth)
+              .setSex(sex)
+              .setMotherId(motherId)
+              .setFatherId(fatherId)
+              .setVersion(version);
+    }
+  }
+}
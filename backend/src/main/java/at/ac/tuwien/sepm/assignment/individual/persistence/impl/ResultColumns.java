@@ -0,0 +1,62 @@
+package at.ac.tuwien.sepm.assignment.individual.persistence.impl;
+
+import at.ac.tuwien.sepm.assignment.individual.exception.FatalException;
+import at.ac.tuwien.sepm.assignment.individual.type.Sex;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Reads single column values of the current row of a {@link ResultSet} by their index.
+ * The row mappers of the DAOs select their columns in a fixed order, so they never need to look a column up by name.
+ */
+final class ResultColumns {
+  private ResultColumns() {
+  }
+
+  /**
+   * Reads a nullable BIGINT column, without boxing the value first to check for null.
+   *
+   * @param result ResultSet positioned on the row to read
+   * @param column index of the column, starting at 1
+   * @return the value of the column, or null if it is NULL
+   * @throws SQLException if the column can not be read
+   */
+  static Long nullableLong(ResultSet result, int column) throws SQLException {
+    long value = result.getLong(column);
+    return result.wasNull() ? null : value;
+  }
+
+  /**
+   * Reads a DATE column directly as {@link LocalDate}, without creating a {@link java.sql.Date} in between.
+   *
+   * @param result ResultSet positioned on the row to read
+   * @param column index of the column, starting at 1
+   * @return the value of the column, or null if it is NULL
+   * @throws SQLException if the column can not be read
+   */
+  static LocalDate localDate(ResultSet result, int column) throws SQLException {
+    return result.getObject(column, LocalDate.class);
+  }
+
+  /**
+   * Reads a sex column.
+   *
+   * @param result ResultSet positioned on the row to read
+   * @param column index of the column, starting at 1
+   * @return the value of the column
+   * @throws SQLException   if the column can not be read
+   * @throws FatalException if the column does not contain a known sex
+   */
+  static Sex sex(ResultSet result, int column) throws SQLException {
+    String value = result.getString(column);
+    if ("FEMALE".equals(value)) {
+      return Sex.FEMALE;
+    }
+    if ("MALE".equals(value)) {
+      return Sex.MALE;
+    }
+    throw new FatalException("Unknown sex '%s' stored".formatted(value));
+  }
+}
@@ -0,0 +1,66 @@
+package at.ac.tuwien.sepm.assignment.individual.rest;
+
+import at.ac.tuwien.sepm.assignment.individual.export.ExportWriter;
+import at.ac.tuwien.sepm.assignment.individual.export.ExportWriterFactory;
+import at.ac.tuwien.sepm.assignment.individual.type.ExportFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Builds the responses of the export endpoints,
+ * which write the exported rows to the response body while they are read from the persistent data store.
+ */
+final class ExportResponses {
+  static final String GZIP_CONTENT_TYPE = "application/gzip";
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private ExportResponses() {
+  }
+
+  /**
+   * Writes all rows of an export to a writer.
+   */
+  @FunctionalInterface
+  interface Exporter {
+    void export(ExportWriter writer) throws IOException;
+  }
+
+  /**
+   * Build the response of an export, downloaded as a file named after the exported data.
+   *
+   * @param name     name of the exported data, used as the name of the file
+   * @param format   the format to export in
+   * @param gzip     whether the file is compressed with gzip
+   * @param writers  factory for the writer of the format
+   * @param exporter writes all rows of the export
+   * @return the response, writing the export when its body is written
+   */
+  static ResponseEntity<StreamingResponseBody> export(
+          String name, ExportFormat format, boolean gzip, ExportWriterFactory writers, Exporter exporter) {
+    StreamingResponseBody body = responseStream -> {
+      OutputStream out = gzip
+              ? new GZIPOutputStream(responseStream, BUFFER_SIZE)
+              : new BufferedOutputStream(responseStream, BUFFER_SIZE);
+      try (ExportWriter writer = writers.create(format, out)) {
+        exporter.export(writer);
+      }
+      if (out instanceof GZIPOutputStream gzipStream) {
+        gzipStream.finish();
+      }
+      out.flush();
+    };
+    String fileName = name + "." + format.fileExtension() + (gzip ? ".gz" : "");
+    return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(gzip ? GZIP_CONTENT_TYPE : format.contentType() + ";charset=UTF-8"))
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+            .body(body);
+  }
+}
@@ -1,40 +1,74 @@
 package at.ac.tuwien.sepm.assignment.individual.rest;
 
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseBatchResultDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseDescendantsDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseDetailDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseFamilyTreeDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseFamilyTreeTableDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseImportResultDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorsePageDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseRevisionDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseSearchDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseSharedFamilyTreeDto;
 import at.ac.tuwien.sepm.assignment.individual.exception.ConflictException;
 import at.ac.tuwien.sepm.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepm.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepm.assignment.individual.export.ExportWriterFactory;
 import at.ac.tuwien.sepm.assignment.individual.service.HorseService;
+import at.ac.tuwien.sepm.assignment.individual.type.ExportFormat;
+import at.ac.tuwien.sepm.assignment.individual.type.HorseField;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.invoke.MethodHandles;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 @RequestMapping(path = HorseEndpoint.BASE_PATH)
 public class HorseEndpoint {
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
   static final String BASE_PATH = "/horses";
+  static final String NDJSON_VALUE = "application/x-ndjson";
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private final HorseService service;
+  private final ObjectMapper objectMapper;
+  private final ExportWriterFactory exportWriters;
 
-  public HorseEndpoint(HorseService service) {
+  public HorseEndpoint(HorseService service, ObjectMapper objectMapper, ExportWriterFactory exportWriters) {
     this.service = service;
+    this.objectMapper = objectMapper;
+    this.exportWriters = exportWriters;
   }
 
   /**
@@ -49,17 +83,84 @@ public class HorseEndpoint {
    * contains more than {@code searchParameters.limit} elements,
    * even if there would be more matches in the persistent data store.
    * If searchParams.limit is null every matching element is returned in the stream
+   * If searchParams.pageSize or searchParams.cursor is given, only one page of horses ordered by name and ID
+   * is returned, and the cursor of the next page is sent in the {@value #NEXT_CURSOR_HEADER} header
+   * If fields are given, only these properties of the horses are loaded and sent, the ID is always sent.
+   * Fields that are not part of {@link HorseListDto} are ignored.
+   * The description is only sent if it is requested, it is not one of the fields sent by default.
    * </p>
    *
    * @param searchParameters {@link HorseSearchDto} parameters to be searched for
+   * @param fields           the properties of the horses to send, those of {@link HorseField#LIST} if null
    * @return a Stream containing all Horses matching the given searchParameters
+   * @throws ValidationException if the paging parameters are invalid
    */
   @GetMapping
-  @ResponseStatus(HttpStatus.OK)
-  public Stream<HorseListDto> searchHorses(HorseSearchDto searchParameters) {
-    LOG.info("GET " + BASE_PATH + " query Parameters: {}", searchParameters);
+  public ResponseEntity<MappingJacksonValue> searchHorses(
+          HorseSearchDto searchParameters,
+          @RequestParam(required = false) List<HorseField> fields) throws ValidationException {
+    LOG.info("GET " + BASE_PATH + " query Parameters: {} fields: {}", searchParameters, fields);
+    LOG.debug("request parameters: \n{}", searchParameters);
+    Set<HorseField> fieldset = SparseFieldsets.fieldset(fields, HorseField.LIST);
+    if (!searchParameters.isPaged()) {
+      // the stream is closed by the message converter once it is written
+      return ResponseEntity.ok(SparseFieldsets.only(service.streamHorses(searchParameters, fieldset), fieldset));
+    }
+    HorsePageDto page = service.searchForHorsePage(searchParameters, fieldset);
+    var response = ResponseEntity.ok();
+    if (page.next() != null) {
+      response.header(NEXT_CURSOR_HEADER, page.next());
+    }
+    return response.body(SparseFieldsets.only(page.horses().stream(), fieldset));
+  }
+
+  /**
+   * REST Endpoint for searching for Horses, answering with newline delimited JSON
+   * Horses are matched like in {@link #searchHorses(HorseSearchDto, List)}, paging is not supported.
+   * Every horse is written to the response as a single line, as soon as it is read from the persistent data store.
+   * Fields are selected like in {@link #searchHorses(HorseSearchDto, List)}.
+   *
+   * @param searchParameters {@link HorseSearchDto} parameters to be searched for
+   * @param fields           the properties of the horses to send, those of {@link HorseField#LIST} if null
+   * @return a body writing all Horses matching the given searchParameters, one per line
+   */
+  @GetMapping(produces = NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> searchHorsesAsNdjson(
+          HorseSearchDto searchParameters,
+          @RequestParam(required = false) List<HorseField> fields) {
+    LOG.info("GET " + BASE_PATH + " as NDJSON query Parameters: {} fields: {}", searchParameters, fields);
     LOG.debug("request parameters: \n{}", searchParameters);
-    return service.searchForHorses(searchParameters);
+    Set<HorseField> fieldset = SparseFieldsets.fieldset(fields, HorseField.LIST);
+    StreamingResponseBody body = outputStream -> {
+      ObjectWriter writer = objectMapper.writerFor(HorseListDto.class).with(SparseFieldsets.filters(fieldset));
+      try (Stream<HorseListDto> horses = service.streamHorses(searchParameters, fieldset)) {
+        Iterator<HorseListDto> iterator = horses.iterator();
+        while (iterator.hasNext()) {
+          outputStream.write(writer.writeValueAsBytes(iterator.next()));
+          outputStream.write('\n');
+        }
+      }
+    };
+    return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(NDJSON_VALUE))
+            .body(body);
+  }
+
+  /**
+   * REST Endpoint for exporting all Horses
+   * Writes every horse stored in the system, with the data of its owner in the same row, to the response,
+   * while reading them from the persistent data store, as a downloadable CSV or NDJSON file.
+   *
+   * @param format the format of the file, CSV by default
+   * @param gzip   whether the file is compressed with gzip
+   * @return a body writing the file
+   */
+  @GetMapping("export")
+  public ResponseEntity<StreamingResponseBody> export(
+          @RequestParam(defaultValue = "csv") ExportFormat format,
+          @RequestParam(defaultValue = "false") boolean gzip) {
+    LOG.info("GET " + BASE_PATH + "/export?format={}&gzip={}", format, gzip);
+    return ExportResponses.export("horses", format, gzip, exportWriters, service::exportHorses);
   }
 
   /**
@@ -67,16 +168,36 @@ public class HorseEndpoint {
    * Get the horse with given ID, with more detail information.
    * This includes the owner of the horse, and its parents.
    * The parents of the parents are not included.
+   * If fields are given, only these properties of the horse are loaded and sent, the ID is always sent.
+   * <p>
+   * The revision of the horse is sent as ETag. If it matches the {@code If-None-Match} header of the request,
+   * only 304 Not Modified is answered, without loading the horse.
+   * Without {@code If-None-Match}, the revision is read together with the horse.
+   * The revision of a fieldset only depends on the owner and parents, if they are part of it.
+   * </p>
    *
-   * @param id the ID of the horse to get
-   * @return the horse with ID {@code id}
+   * @param id       the ID of the horse to get
+   * @param fields   the properties of the horse to send, all of them if null
+   * @param request  the request, to check its preconditions
+   * @param response the response, to send the ETag with
+   * @return the horse with ID {@code id}, or null if it was not modified
    */
   @GetMapping("{id}")
-  @ResponseStatus(HttpStatus.OK)
-  public HorseDetailDto getById(@PathVariable long id) {
-    LOG.info("GET " + BASE_PATH + "/{}", id);
+  public MappingJacksonValue getById(
+          @PathVariable long id,
+          @RequestParam(required = false) List<HorseField> fields,
+          WebRequest request,
+          HttpServletResponse response) {
+    LOG.info("GET " + BASE_PATH + "/{} fields: {}", id, fields);
+    Set<HorseField> fieldset = SparseFieldsets.fieldset(fields, HorseField.DETAIL);
     try {
-      return service.getById(id);
+      if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+              && request.checkNotModified(detailEtag(service.getRevision(id), fieldset))) {
+        return null;
+      }
+      HorseDetailDto horse = service.getById(id, fieldset);
+      response.setHeader(HttpHeaders.ETAG, detailEtag(horse.revision(), fieldset));
+      return SparseFieldsets.only(horse, fieldset);
     } catch (NotFoundException e) {
       HttpStatus status = HttpStatus.NOT_FOUND;
       logClientError(status, "Horse to get details of not found", e);
@@ -89,19 +210,40 @@ public class HorseEndpoint {
    * Updates the horse with the ID given in {@code toUpdate}
    * with the data given in {@code toUpdate}
    * in the persistent data store.
+   * If the request has an {@code If-Match} header, the horse is only updated if its current ETag matches it,
+   * otherwise 412 Precondition Failed is answered.
+   * If the horse is changed by someone else after the check, 409 Conflict is answered instead, no lock is taken.
+   * Without {@code If-Match}, the {@code version} in {@code toUpdate} is checked the same way, if it is given.
    *
+   * @param id       the ID of the horse to update
    * @param toUpdate the horse to update
-   * @return the updated horse
+   * @param ifMatch  the ETags of the horse, the update is based on
+   * @return the updated horse, with its new revision as ETag
    * @throws ValidationException if the update data given for the horse is in itself incorrect (description too long, no name, …)
    * @throws ConflictException   if the update data given for the horse is in conflict the data currently in the system (child older than parent, …)
    */
   @PutMapping("{id}")
-  @ResponseStatus(HttpStatus.OK)
-  public HorseDetailDto update(@PathVariable long id, @RequestBody HorseDetailDto toUpdate) throws ValidationException, ConflictException {
+  public ResponseEntity<HorseDetailDto> update(
+          @PathVariable long id,
+          @RequestBody HorseDetailDto toUpdate,
+          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws ValidationException, ConflictException {
     LOG.info("PUT " + BASE_PATH + "/{}", toUpdate);
     LOG.debug("Body of request:\n{}", toUpdate);
     try {
-      return service.update(toUpdate.withId(id));
+      HorseDetailDto horse = toUpdate.withId(id);
+      if (ifMatch != null) {
+        HorseRevisionDto current = service.getRevision(id);
+        if (!matches(ifMatch, etag(current.tag()))) {
+          HttpStatus status = HttpStatus.PRECONDITION_FAILED;
+          LOG.error("{} Horse to update was changed since {}", status.value(), ifMatch);
+          throw new ResponseStatusException(status, "Horse was changed since it was read, reload it and try again");
+        }
+        horse = horse.withVersion(current.version());
+      }
+      HorseDetailDto updated = service.update(horse);
+      return ResponseEntity.ok()
+              .eTag(detailEtag(updated.revision(), HorseField.DETAIL))
+              .body(updated);
     } catch (NotFoundException e) {
       HttpStatus status = HttpStatus.NOT_FOUND;
       logClientError(status, "Horse to update not found", e);
@@ -128,20 +270,83 @@ public class HorseEndpoint {
     return service.create(newHorse);
   }
 
+  /**
+   * REST Endpoint for creating a batch of new Horses
+   * The whole batch is validated at once, and all valid horses are stored
+   * in the persistent data store in a single transaction.
+   *
+   * @param newHorses the horses to create
+   * @return for every horse, in order, either the created horse or the errors that prevented its creation
+   */
+  @PostMapping("batch")
+  @ResponseStatus(HttpStatus.OK)
+  public List<HorseBatchResultDto> createBatch(@RequestBody List<HorseCreateDto> newHorses) {
+    LOG.info("CREATE " + BASE_PATH + "/batch with {} horses", newHorses.size());
+    LOG.debug("Body of request:\n{}", newHorses);
+    return service.createBatch(newHorses);
+  }
+
+  /**
+   * REST Endpoint for importing Horses from a CSV file with a header line.
+   * The rows are read from the request body while they are imported, so the file may be arbitrarily large.
+   * Parents are referenced either by ID ({@code mother_id}, {@code father_id}) or by the {@code key} of another row
+   * ({@code mother_key}, {@code father_key}).
+   *
+   * @param body            the CSV file
+   * @param contentEncoding the encoding of the body, the body is decompressed if it is {@code gzip}
+   * @return the number of imported and failed rows, together with the errors of the failed rows
+   * @throws IOException if the request body can not be read
+   */
+  @PostMapping(value = "import", consumes = "text/csv")
+  public HorseImportResultDto importCsv(
+          InputStream body,
+          @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding) throws IOException {
+    LOG.info("POST " + BASE_PATH + "/import (csv)");
+    return service.importHorses(HorseImportReader.csv(decode(body, contentEncoding)));
+  }
+
+  /**
+   * REST Endpoint for importing Horses from an NDJSON file, one horse object per line,
+   * using the same fields as {@link #importCsv(InputStream, String)}.
+   *
+   * @param body            the NDJSON file
+   * @param contentEncoding the encoding of the body, the body is decompressed if it is {@code gzip}
+   * @return the number of imported and failed rows, together with the errors of the failed rows
+   * @throws IOException if the request body can not be read
+   */
+  @PostMapping(value = "import", consumes = NDJSON_VALUE)
+  public HorseImportResultDto importNdjson(
+          InputStream body,
+          @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding) throws IOException {
+    LOG.info("POST " + BASE_PATH + "/import (ndjson)");
+    return service.importHorses(HorseImportReader.ndjson(decode(body, contentEncoding), objectMapper));
+  }
+
+  private static InputStream decode(InputStream body, String contentEncoding) throws IOException {
+    return "gzip".equalsIgnoreCase(contentEncoding) ? new GZIPInputStream(body) : body;
+  }
+
   /**
    * REST Endpoint for retrieving a FamilyTree of a given horse with id={@code id}
    * get the Ancestors of the specified(by id) horse as a {@link HorseFamilyTreeDto}
    * up to (including) the given generation
+   * <p>
+   * The revision of the tree is sent as ETag, and only 304 Not Modified is answered,
+   * if it matches the {@code If-None-Match} header of the request.
+   * </p>
    *
    * @param id          id of the root horse of the family Tree
    * @param generations number of generations which are extracted
-   * @return a {@link HorseFamilyTreeDto} representing the FamilyTree of the horse
+   * @param request     the request, to check its preconditions
+   * @return a {@link HorseFamilyTreeDto} representing the FamilyTree of the horse, or null if it was not modified
    */
   @GetMapping("{id}/familytree")
-  @ResponseStatus(HttpStatus.OK)
-  public HorseFamilyTreeDto getFamilyTree(@PathVariable("id") long id, long generations) {
+  public HorseFamilyTreeDto getFamilyTree(@PathVariable("id") long id, long generations, WebRequest request) {
     LOG.info("GET " + BASE_PATH + "/{}/familytree?generations={}", id, generations);
     try {
+      if (request.checkNotModified(etag(service.getFamilyTreeRevision(id, generations)))) {
+        return null;
+      }
       return service.getFamilyTree(id, generations);
     } catch (NotFoundException e) {
       HttpStatus status = HttpStatus.NOT_FOUND;
@@ -150,6 +355,81 @@ public class HorseEndpoint {
     }
   }
 
+  /**
+   * REST Endpoint for retrieving a FamilyTree of a given horse with id={@code id},
+   * selected with {@code format=shared}.
+   * get the Ancestors of the specified(by id) horse as a {@link HorseSharedFamilyTreeDto}
+   * up to (including) the given generation, where every further appearance of an ancestor
+   * only consists of its ID
+   *
+   * @param id          id of the root horse of the family Tree
+   * @param generations number of generations which are extracted
+   * @param request     the request, to check its preconditions like {@link #getFamilyTree(long, long, WebRequest)}
+   * @return a {@link HorseSharedFamilyTreeDto} representing the FamilyTree of the horse, or null if it was not modified
+   */
+  @GetMapping(value = "{id}/familytree", params = "format=shared")
+  public HorseSharedFamilyTreeDto getSharedFamilyTree(@PathVariable("id") long id, long generations, WebRequest request) {
+    LOG.info("GET " + BASE_PATH + "/{}/familytree?generations={}&format=shared", id, generations);
+    try {
+      if (request.checkNotModified(etag(service.getFamilyTreeRevision(id, generations)))) {
+        return null;
+      }
+      return service.getSharedFamilyTree(id, generations);
+    } catch (NotFoundException e) {
+      HttpStatus status = HttpStatus.NOT_FOUND;
+      logClientError(status, "Horse to retrieve FamilyTree from not found", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * REST Endpoint for retrieving a FamilyTree of a given horse with id={@code id},
+   * selected with {@code format=flat}.
+   * get the Ancestors of the specified(by id) horse as a flat {@link HorseFamilyTreeTableDto}
+   * up to (including) the given generation
+   *
+   * @param id          id of the root horse of the family Tree
+   * @param generations number of generations which are extracted
+   * @param request     the request, to check its preconditions like {@link #getFamilyTree(long, long, WebRequest)}
+   * @return a {@link HorseFamilyTreeTableDto} representing the FamilyTree of the horse, or null if it was not modified
+   */
+  @GetMapping(value = "{id}/familytree", params = "format=flat")
+  public HorseFamilyTreeTableDto getFamilyTreeTable(@PathVariable("id") long id, long generations, WebRequest request) {
+    LOG.info("GET " + BASE_PATH + "/{}/familytree?generations={}&format=flat", id, generations);
+    try {
+      if (request.checkNotModified(etag(service.getFamilyTreeRevision(id, generations)))) {
+        return null;
+      }
+      return service.getFamilyTreeTable(id, generations);
+    } catch (NotFoundException e) {
+      HttpStatus status = HttpStatus.NOT_FOUND;
+      logClientError(status, "Horse to retrieve FamilyTree from not found", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * REST Endpoint for retrieving the progeny of a given horse with id={@code id}
+   * get the Descendants of the specified(by id) horse as a {@link HorseDescendantsDto}
+   * up to (including) the given generation
+   *
+   * @param id          id of the root horse
+   * @param generations number of generations of descendants which are extracted
+   * @return a {@link HorseDescendantsDto} representing the progeny of the horse
+   */
+  @GetMapping("{id}/descendants")
+  @ResponseStatus(HttpStatus.OK)
+  public HorseDescendantsDto getDescendants(@PathVariable("id") long id, long generations) {
+    LOG.info("GET " + BASE_PATH + "/{}/descendants?generations={}", id, generations);
+    try {
+      return service.getDescendants(id, generations);
+    } catch (NotFoundException e) {
+      HttpStatus status = HttpStatus.NOT_FOUND;
+      logClientError(status, "Horse to retrieve descendants from not found", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
+  }
+
   /**
    * REST Endpoint for deleting a Horse
    * Deletes a Horse with the id given {@code id}
@@ -172,6 +452,43 @@ public class HorseEndpoint {
   }
 
 
+  private static String etag(String tag) {
+    return "\"" + tag + "\"";
+  }
+
+  /**
+   * formats the revision of the given fields of a horse as ETag,
+   * so that different fieldsets of the same horse never share their ETag
+   *
+   * @param revision the revision of the horse
+   * @param fields   the fields of the horse, that are sent
+   * @return the ETag of the fields of the horse
+   */
+  private static String detailEtag(HorseRevisionDto revision, Set<HorseField> fields) {
+    if (fields.equals(HorseField.DETAIL)) {
+      return etag(revision.tag());
+    }
+    return etag(revision.restrictTo(fields).tag() + ";"
+            + fields.stream().map(HorseField::property).collect(Collectors.joining(",")));
+  }
+
+  /**
+   * checks if an {@code If-Match} header matches the current ETag of a resource, using the strong comparison
+   *
+   * @param ifMatch the {@code If-Match} header, a list of ETags or {@code *}
+   * @param etag    the current ETag of the resource
+   * @return whether one of the ETags in {@code ifMatch} matches {@code etag}
+   */
+  private static boolean matches(String ifMatch, String etag) {
+    for (String tag : ifMatch.split(",")) {
+      String trimmed = tag.trim();
+      if (trimmed.equals("*") || trimmed.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * logs Error cause by Client
    *
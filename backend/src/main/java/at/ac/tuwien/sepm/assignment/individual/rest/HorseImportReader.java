@@ -0,0 +1,304 @@
+package at.ac.tuwien.sepm.assignment.individual.rest;
+
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseImportRowDto;
+import at.ac.tuwien.sepm.assignment.individual.type.Sex;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the rows of a horse import from a request body, one row at a time.
+ * <p>
+ * Both formats use the same column names:
+ * {@code key, name, description, date_of_birth, sex, owner_id, mother_id, mother_key, father_id, father_key}.
+ * Other columns, like the owner columns of an export, are ignored.
+ * A CSV body starts with a header line naming the columns, an NDJSON body contains one object per line.
+ * </p>
+ * Rows that cannot be read are returned with their errors instead of aborting the import.
+ * A leading byte order mark, as written by spreadsheet applications, is skipped.
+ * Failing to read the body itself throws an {@link UncheckedIOException} from the iterator.
+ */
+final class HorseImportReader {
+  private static final String BYTE_ORDER_MARK = "\uFEFF";
+
+  private HorseImportReader() {
+  }
+
+  /**
+   * Read the rows of a CSV body.
+   *
+   * @param body the body, encoded in UTF-8
+   * @return an iterator reading the rows lazily
+   */
+  static Iterator<HorseImportRowDto> csv(InputStream body) {
+    return new CsvRows(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * Read the rows of an NDJSON body.
+   *
+   * @param body         the body, encoded in UTF-8
+   * @param objectMapper the mapper to parse every line with
+   * @return an iterator reading the rows lazily
+   */
+  static Iterator<HorseImportRowDto> ndjson(InputStream body, ObjectMapper objectMapper) {
+    return new NdjsonRows(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)), objectMapper);
+  }
+
+  private static HorseImportRowDto toRow(long line, Map<String, String> values, List<String> errors) {
+    return new HorseImportRowDto(
+            line,
+            value(values, "key"),
+            value(values, "name"),
+            value(values, "description"),
+            parse(values, "date_of_birth", "Date of birth", LocalDate::parse, errors),
+            parse(values, "sex", "Sex", text -> Sex.valueOf(text.toUpperCase(Locale.ROOT)), errors),
+            parse(values, "owner_id", "Owner ID", Long::valueOf, errors),
+            parse(values, "mother_id", "Mother ID", Long::valueOf, errors),
+            value(values, "mother_key"),
+            parse(values, "father_id", "Father ID", Long::valueOf, errors),
+            value(values, "father_key"),
+            errors
+    );
+  }
+
+  private static String value(Map<String, String> values, String column) {
+    String value = values.get(column);
+    return value == null || value.isEmpty() ? null : value;
+  }
+
+  private static <T> T parse(Map<String, String> values, String column, String description,
+                             Parser<T> parser, List<String> errors) {
+    String value = value(values, column);
+    if (value == null) {
+      return null;
+    }
+    try {
+      return parser.parse(value.trim());
+    } catch (IllegalArgumentException | DateTimeParseException e) {
+      errors.add("%s '%s' is invalid".formatted(description, value));
+      return null;
+    }
+  }
+
+  private static String stripByteOrderMark(String text) {
+    return text.startsWith(BYTE_ORDER_MARK) ? text.substring(BYTE_ORDER_MARK.length()) : text;
+  }
+
+  @FunctionalInterface
+  private interface Parser<T> {
+    T parse(String text);
+  }
+
+  /**
+   * Rows of a CSV body according to RFC 4180. Quoted values may contain separators, quotes and line breaks.
+   */
+  private static class CsvRows implements Iterator<HorseImportRowDto> {
+    private final Reader reader;
+    private List<String> header;
+    private List<String> next;
+    private long line = 1;
+    private long recordLine;
+    private long nextLine;
+    private int lookahead = -2;
+
+    CsvRows(Reader reader) {
+      this.reader = reader;
+    }
+
+    @Override
+    public boolean hasNext() {
+      try {
+        if (header == null) {
+          header = readRecord();
+          if (header == null) {
+            return false;
+          }
+          header.set(0, stripByteOrderMark(header.get(0)));
+          header.replaceAll(column -> column.trim().toLowerCase(Locale.ROOT));
+        }
+        if (next == null) {
+          next = readRecord();
+          nextLine = recordLine;
+        }
+        return next != null;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public HorseImportRowDto next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      List<String> record = next;
+      next = null;
+      List<String> errors = new ArrayList<>();
+      if (record.size() != header.size()) {
+        errors.add("Row has %d values, but the header names %d columns".formatted(record.size(), header.size()));
+      }
+      Map<String, String> values = new HashMap<>();
+      for (int i = 0; i < Math.min(record.size(), header.size()); i++) {
+        values.put(header.get(i), record.get(i));
+      }
+      return toRow(nextLine, values, errors);
+    }
+
+    /**
+     * Read the next record, skipping empty lines.
+     * The number of the line the record starts on is kept in {@code recordLine}.
+     *
+     * @return the values of the record, or null at the end of the body
+     */
+    private List<String> readRecord() throws IOException {
+      List<String> values = new ArrayList<>();
+      StringBuilder value = new StringBuilder();
+      boolean quoted = false;
+      boolean empty = true;
+      int c;
+      while ((c = read()) != -1) {
+        if (c == '\n') {
+          line++;
+        }
+        if (quoted) {
+          if (c == '"') {
+            if (peek() == '"') {
+              read();
+              value.append('"');
+            } else {
+              quoted = false;
+            }
+          } else {
+            value.append((char) c);
+          }
+          continue;
+        }
+        if (c == '\r' && peek() == '\n') {
+          continue;
+        }
+        if (c == '\n') {
+          if (empty) {
+            continue;
+          }
+          values.add(value.toString());
+          return values;
+        }
+        if (empty) {
+          recordLine = line;
+          empty = false;
+        }
+        if (c == ',') {
+          values.add(value.toString());
+          value.setLength(0);
+        } else if (c == '"' && value.length() == 0) {
+          quoted = true;
+        } else {
+          value.append((char) c);
+        }
+      }
+      if (empty) {
+        return null;
+      }
+      values.add(value.toString());
+      return values;
+    }
+
+    private int read() throws IOException {
+      if (lookahead != -2) {
+        int c = lookahead;
+        lookahead = -2;
+        return c;
+      }
+      return reader.read();
+    }
+
+    private int peek() throws IOException {
+      if (lookahead == -2) {
+        lookahead = reader.read();
+      }
+      return lookahead;
+    }
+  }
+
+  /**
+   * Rows of an NDJSON body, one JSON object per line.
+   */
+  private static class NdjsonRows implements Iterator<HorseImportRowDto> {
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper;
+    private String next;
+    private long line;
+    private long nextLine;
+
+    NdjsonRows(BufferedReader reader, ObjectMapper objectMapper) {
+      this.reader = reader;
+      this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean hasNext() {
+      try {
+        while (next == null) {
+          String read = reader.readLine();
+          if (read == null) {
+            return false;
+          }
+          line++;
+          if (line == 1) {
+            read = stripByteOrderMark(read);
+          }
+          if (!read.isBlank()) {
+            next = read;
+            nextLine = line;
+          }
+        }
+        return true;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public HorseImportRowDto next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      String json = next;
+      next = null;
+      List<String> errors = new ArrayList<>();
+      Map<String, String> values = new HashMap<>();
+      try {
+        JsonNode object = objectMapper.readTree(json);
+        if (object.isObject()) {
+          object.fields().forEachRemaining(field -> {
+            if (!field.getValue().isNull()) {
+              values.put(field.getKey(), field.getValue().asText());
+            }
+          });
+        } else {
+          errors.add("Row is not a JSON object");
+        }
+      } catch (IOException e) {
+        errors.add("Row is not valid JSON");
+      }
+      return toRow(nextLine, values, errors);
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package at.ac.tuwien.sepm.assignment.individual.rest;
+
+import at.ac.tuwien.sepm.assignment.individual.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.invoke.MethodHandles;
+
+@RestController
+@RequestMapping(MetricsEndpoint.BASE_PATH)
+public class MetricsEndpoint {
+  static final String BASE_PATH = "/metrics";
+  static final String PROMETHEUS_TEXT_VALUE = "text/plain;version=0.0.4;charset=utf-8";
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private final MetricsRegistry metrics;
+
+  public MetricsEndpoint(MetricsRegistry metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * REST Endpoint for scraping the metrics of the application, in the Prometheus text format.
+   * This includes latency percentiles of every route and DAO method, and the statistics of the caches.
+   *
+   * @return the current metrics
+   */
+  @GetMapping(produces = PROMETHEUS_TEXT_VALUE)
+  public String scrape() {
+    LOG.debug("GET " + BASE_PATH);
+    return metrics.scrape();
+  }
+}
@@ -5,16 +5,21 @@ import at.ac.tuwien.sepm.assignment.individual.dto.OwnerDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.OwnerSearchDto;
 import at.ac.tuwien.sepm.assignment.individual.exception.ConflictException;
 import at.ac.tuwien.sepm.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepm.assignment.individual.export.ExportWriterFactory;
 import at.ac.tuwien.sepm.assignment.individual.service.OwnerService;
+import at.ac.tuwien.sepm.assignment.individual.type.ExportFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.lang.invoke.MethodHandles;
 import java.util.stream.Stream;
@@ -25,9 +30,11 @@ public class OwnerEndpoint {
   static final String BASE_PATH = "/owners";
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private final OwnerService service;
+  private final ExportWriterFactory exportWriters;
 
-  public OwnerEndpoint(OwnerService service) {
+  public OwnerEndpoint(OwnerService service, ExportWriterFactory exportWriters) {
     this.service = service;
+    this.exportWriters = exportWriters;
   }
 
   /**
@@ -50,6 +57,23 @@ public class OwnerEndpoint {
     return service.search(searchParameters);
   }
 
+  /**
+   * REST Endpoint for exporting all Owners
+   * Writes every owner stored in the system to the response, while reading them from the persistent data store,
+   * as a downloadable CSV or NDJSON file.
+   *
+   * @param format the format of the file, CSV by default
+   * @param gzip   whether the file is compressed with gzip
+   * @return a body writing the file
+   */
+  @GetMapping("export")
+  public ResponseEntity<StreamingResponseBody> export(
+          @RequestParam(defaultValue = "csv") ExportFormat format,
+          @RequestParam(defaultValue = "false") boolean gzip) {
+    LOG.info("GET " + BASE_PATH + "/export?format={}&gzip={}", format, gzip);
+    return ExportResponses.export("owners", format, gzip, exportWriters, service::exportOwners);
+  }
+
   /**
    * REST Endpoint for creating a new owner
    * Create a new owner in the persistent data store.
@@ -0,0 +1,87 @@
+package at.ac.tuwien.sepm.assignment.individual.rest;
+
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseDetailDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepm.assignment.individual.type.HorseField;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.http.converter.json.MappingJacksonValue;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Serialization of sparse fieldsets of horses, requested with the {@code fields} query parameter.
+ * <p>
+ * The horse DTOs are serialized with a Jackson property filter, which is given the fields to serialize
+ * by the endpoints that support fieldsets, and serializes every property everywhere else.
+ * The filter is attached to the DTOs with a mix-in, so only object mappers that were {@link #register registered}
+ * know about it, plain object mappers serialize the DTOs as before.
+ * </p>
+ */
+public final class SparseFieldsets {
+  private static final String FILTER_ID = "horseFields";
+
+  private SparseFieldsets() {
+  }
+
+  /**
+   * Registers the filter of the horse DTOs with an object mapper.
+   * Without a requested fieldset, every property is serialized.
+   *
+   * @param objectMapper the object mapper to register the filter with
+   */
+  public static void register(ObjectMapper objectMapper) {
+    objectMapper.addMixIn(HorseListDto.class, Filtered.class);
+    objectMapper.addMixIn(HorseDetailDto.class, Filtered.class);
+    objectMapper.setFilterProvider(new SimpleFilterProvider().setFailOnUnknownId(false));
+  }
+
+  /**
+   * Normalizes a requested fieldset. The ID is always part of it.
+   *
+   * @param fields the requested fields, null if no fieldset is requested
+   * @return the requested fields in the order of {@link HorseField}, or {@code defaults} if no fieldset is requested
+   */
+  static Set<HorseField> fieldset(Collection<HorseField> fields, Set<HorseField> defaults) {
+    if (fields == null) {
+      return defaults;
+    }
+    Set<HorseField> fieldset = EnumSet.of(HorseField.ID);
+    fieldset.addAll(fields);
+    return fieldset;
+  }
+
+  /**
+   * Get the filters serializing only the given fields of a horse.
+   *
+   * @param fields the fields to serialize
+   * @return the filters to serialize the horse DTOs with
+   */
+  static FilterProvider filters(Set<HorseField> fields) {
+    Set<String> properties = fields.stream().map(HorseField::property).collect(Collectors.toSet());
+    return new SimpleFilterProvider().addFilter(FILTER_ID, SimpleBeanPropertyFilter.filterOutAllExcept(properties));
+  }
+
+  /**
+   * Wraps a response body, so that only the given fields of the horses in it are serialized.
+   *
+   * @param body   the response body
+   * @param fields the fields to serialize
+   * @return the wrapped body
+   */
+  static MappingJacksonValue only(Object body, Set<HorseField> fields) {
+    MappingJacksonValue value = new MappingJacksonValue(body);
+    value.setFilters(filters(fields));
+    return value;
+  }
+
+  @JsonFilter(FILTER_ID)
+  private interface Filtered {
+  }
+}
@@ -1,14 +1,28 @@
 package at.ac.tuwien.sepm.assignment.individual.service;
 
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseBatchResultDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseDescendantsDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseDetailDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseFamilyTreeDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseFamilyTreeTableDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseImportResultDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseImportRowDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorsePageDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseRevisionDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseSearchDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseSharedFamilyTreeDto;
 import at.ac.tuwien.sepm.assignment.individual.exception.ConflictException;
 import at.ac.tuwien.sepm.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepm.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepm.assignment.individual.export.ExportWriter;
+import at.ac.tuwien.sepm.assignment.individual.type.HorseField;
 
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.stream.Stream;
 
 /**
@@ -27,12 +41,16 @@ public interface HorseService {
    * Updates the horse with the ID given in {@code horse}
    * with the data given in {@code horse}
    * in the persistent data store.
+   * <p>
+   * If {@code horse.version} is given, the horse is only updated if it was not changed since that version.
+   * </p>
    *
    * @param horse the horse to update
    * @return the updated horse
    * @throws NotFoundException   if the horse with given ID does not exist in the persistent data store
    * @throws ValidationException if the update data given for the horse is in itself incorrect (description too long, no name, …)
-   * @throws ConflictException   if the update data given for the horse is in conflict the data currently in the system (child older than parent, …)
+   * @throws ConflictException   if the update data given for the horse is in conflict the data currently in the system (child older than parent, …),
+   *                             or if the horse was changed since {@code horse.version}
    */
   HorseDetailDto update(HorseDetailDto horse) throws NotFoundException, ValidationException, ConflictException;
 
@@ -48,6 +66,29 @@ public interface HorseService {
    */
   HorseDetailDto getById(long id) throws NotFoundException;
 
+  /**
+   * Get the horse with given ID, like {@link #getById(long)}, but only with the given fields.
+   * Only what is needed for these fields is loaded from the persistent data store.
+   * The ID and version of the horse are always included.
+   *
+   * @param id     the ID of the horse to get
+   * @param fields the fields of the horse to get
+   * @return the horse with ID {@code id}, fields that were not requested are null
+   * @throws NotFoundException if the horse with the given ID does not exist in the persistent data store
+   */
+  HorseDetailDto getById(long id, Set<HorseField> fields) throws NotFoundException;
+
+  /**
+   * Get the revision of the horse with given ID, as returned by {@link #getById(long)}.
+   * The revision changes whenever the horse, its owner or one of its parents changes,
+   * and is much cheaper to get than the horse itself.
+   *
+   * @param id the ID of the horse
+   * @return the revision of the horse with ID {@code id}
+   * @throws NotFoundException if the horse with the given ID does not exist in the persistent data store
+   */
+  HorseRevisionDto getRevision(long id) throws NotFoundException;
+
   /**
    * Create a new Horse with Data given in {@code horse}
    * stores the horse in the persistent data store and
@@ -60,6 +101,29 @@ public interface HorseService {
    */
   HorseDetailDto create(HorseCreateDto horse) throws ValidationException, ConflictException;
 
+  /**
+   * Create a batch of new Horses with the data given in {@code horses}.
+   * The whole batch is validated at once, and all valid horses are stored
+   * in the persistent data store in a single transaction.
+   * Invalid horses are not stored, their errors are reported instead.
+   *
+   * @param horses the horses to create
+   * @return for every horse, in order, either the created horse or the errors that prevented its creation
+   */
+  List<HorseBatchResultDto> createBatch(List<HorseCreateDto> horses);
+
+  /**
+   * Import new Horses from the rows given in {@code rows}, reading one row at a time.
+   * Parents are referenced either by the ID of a stored horse, or by the key of another row of the import,
+   * which may also come later in the import.
+   * The rows are validated and stored in chunks, each in its own transaction.
+   * Invalid rows, and the rows referencing them as parent, are not stored, their errors are reported instead.
+   *
+   * @param rows the rows to import
+   * @return the number of imported and failed rows, together with the errors of the failed rows
+   */
+  HorseImportResultDto importHorses(Iterator<HorseImportRowDto> rows);
+
   /**
    * Deletes a Horse with the id given {@code id}
    * deletes every relationship including this horse(parent-child
@@ -89,6 +153,41 @@ public interface HorseService {
    */
   Stream<HorseListDto> searchForHorses(HorseSearchDto searchParams);
 
+  /**
+   * Search for Horses matching the criteria in {@code searchParams}, like {@link #searchForHorses(HorseSearchDto)},
+   * but stream the matches from the persistent data store as they are read.
+   * Owners are resolved in bounded chunks, so neither the horses nor their owners are ever held in memory at once.
+   * Only the given fields of the horses are loaded, fields that are not part of {@link HorseListDto} are ignored.
+   * Owners are only resolved if they are requested.
+   * <p>
+   * The returned stream holds a database connection until it is closed.
+   * It <b>must</b> be closed by the caller, e.g. with a try-with-resources statement.
+   * </p>
+   *
+   * @param searchParams object containing the search parameters to match
+   * @param fields       the fields of the horses to get
+   * @return a lazily populated Stream containing horses matching the criteria in {@code searchParams},
+   *         fields that were not requested are null
+   */
+  Stream<HorseListDto> streamHorses(HorseSearchDto searchParams, Set<HorseField> fields);
+
+  /**
+   * Search for one page of Horses matching the criteria in {@code searchParams}.
+   * <p>
+   * Horses are matched like in {@link #searchForHorses(HorseSearchDto)}, but ordered by name and ID
+   * and split into pages of {@code searchParams.pageSize} horses.
+   * The page following the one given by {@code searchParams.cursor} is returned,
+   * together with the cursor of the next page.
+   * Only the given fields of the horses are loaded, like in {@link #streamHorses(HorseSearchDto, Set)}.
+   * </p>
+   *
+   * @param searchParams object containing the search and paging parameters
+   * @param fields       the fields of the horses to get
+   * @return the requested page of horses, fields that were not requested are null
+   * @throws ValidationException if the page size or the cursor are invalid
+   */
+  HorsePageDto searchForHorsePage(HorseSearchDto searchParams, Set<HorseField> fields) throws ValidationException;
+
   /**
    * get the Ancestors of the specified(by id) horse as a {@link HorseFamilyTreeDto}
    * up to (including) the given generation
@@ -99,4 +198,61 @@ public interface HorseService {
    * @throws NotFoundException if Horse with id is not found in system
    */
   HorseFamilyTreeDto getFamilyTree(Long id, Long generations) throws NotFoundException;
+
+  /**
+   * Get the revision of the family tree of the specified(by id) horse, in any of its formats.
+   * The revision is an opaque tag, that changes whenever an ancestor in the tree changes, or the tree
+   * gains or loses an ancestor, and is cheaper to get than the tree itself.
+   *
+   * @param id          id of the root horse of the family Tree
+   * @param generations number of generations which are extracted
+   * @return the revision of the family tree
+   * @throws NotFoundException if Horse with id is not found in system
+   */
+  String getFamilyTreeRevision(Long id, Long generations) throws NotFoundException;
+
+  /**
+   * get the Ancestors of the specified(by id) horse as a {@link HorseSharedFamilyTreeDto}
+   * up to (including) the given generation.
+   * Unlike {@link #getFamilyTree(Long, Long)}, an ancestor appearing several times in the tree is
+   * only represented once, further appearances reference it by ID.
+   *
+   * @param id          id of the root horse of the family Tree
+   * @param generations number of generations which are extracted
+   * @return a {@link HorseSharedFamilyTreeDto} representing the FamilyTree of the horse
+   * @throws NotFoundException if Horse with id is not found in system
+   */
+  HorseSharedFamilyTreeDto getSharedFamilyTree(Long id, Long generations) throws NotFoundException;
+
+  /**
+   * get the Ancestors of the specified(by id) horse as a flat {@link HorseFamilyTreeTableDto}
+   * up to (including) the given generation.
+   * Every ancestor is contained once, parents are referenced by their index in the table.
+   *
+   * @param id          id of the root horse of the family Tree
+   * @param generations number of generations which are extracted
+   * @return a {@link HorseFamilyTreeTableDto} representing the FamilyTree of the horse
+   * @throws NotFoundException if Horse with id is not found in system
+   */
+  HorseFamilyTreeTableDto getFamilyTreeTable(Long id, Long generations) throws NotFoundException;
+
+  /**
+   * get the Descendants of the specified(by id) horse as a {@link HorseDescendantsDto}
+   * up to (including) the given generation, together with the number of descendants per generation
+   *
+   * @param id          id of the root horse
+   * @param generations number of generations of descendants which are extracted
+   * @return a {@link HorseDescendantsDto} representing the progeny of the horse
+   * @throws NotFoundException if Horse with id is not found in system
+   */
+  HorseDescendantsDto getDescendants(Long id, Long generations) throws NotFoundException;
+
+  /**
+   * Write every horse stored in the system, together with its owner, to {@code writer}.
+   * The horses are written while they are read, so the memory needed does not depend on their number.
+   *
+   * @param writer the writer to write the horses to, it is started but not closed
+   * @throws IOException if writing to {@code writer} fails
+   */
+  void exportHorses(ExportWriter writer) throws IOException;
 }
@@ -5,7 +5,9 @@ import at.ac.tuwien.sepm.assignment.individual.dto.OwnerDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.OwnerSearchDto;
 import at.ac.tuwien.sepm.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepm.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepm.assignment.individual.export.ExportWriter;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Map;
 import java.util.stream.Stream;
@@ -32,6 +34,15 @@ public interface OwnerService {
    */
   Map<Long, OwnerDto> getAllById(Collection<Long> ids) throws NotFoundException;
 
+  /**
+   * Fetch all existing owners referenced by the IDs in {@code ids}.
+   * This is best effort, owners that are not found are simply not contained in the returned map.
+   *
+   * @param ids the IDs of the owners, that should be fetched
+   * @return a map that contains the found owners with their IDs as key
+   */
+  Map<Long, OwnerDto> findAllById(Collection<Long> ids);
+
   /**
    * Search for owners matching the criteria in {@code searchParameters}.
    * <p>
@@ -53,4 +64,13 @@ public interface OwnerService {
    * @throws ValidationException if the data given for the owner is in itself incorrect(no name, ...)
    */
   OwnerDto create(OwnerCreateDto newOwner) throws ValidationException;
+
+  /**
+   * Write every owner stored in the system to {@code writer}.
+   * The owners are written while they are read, so the memory needed does not depend on their number.
+   *
+   * @param writer the writer to write the owners to, it is started but not closed
+   * @throws IOException if writing to {@code writer} fails
+   */
+  void exportOwners(ExportWriter writer) throws IOException;
 }
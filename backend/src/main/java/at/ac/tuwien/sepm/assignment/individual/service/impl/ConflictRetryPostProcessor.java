@@ -0,0 +1,72 @@
+package at.ac.tuwien.sepm.assignment.individual.service.impl;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.invoke.MethodHandles;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries methods annotated with {@link RetryOnConflict}, if they fail because of a conflict with a concurrent
+ * transaction, like a concurrent update of the same row, a deadlock or a lock timeout.
+ * <p>
+ * The retry advice is put in front of all other advice, especially the transaction advice,
+ * so every attempt runs in a new transaction.
+ * A method is tried at most {@code transaction.retry.max-attempts} times,
+ * waiting a random time up to {@code transaction.retry.backoff} times the number of failed attempts in between.
+ * Calls within a transaction started by the caller are not retried, as the caller's transaction is already lost.
+ * </p>
+ */
+@Component
+public class ConflictRetryPostProcessor extends AbstractAdvisingBeanPostProcessor {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  public ConflictRetryPostProcessor(
+          @Value("${transaction.retry.max-attempts:3}") int maxAttempts,
+          @Value("${transaction.retry.backoff:PT0.02S}") Duration backoff) {
+    this.advisor = new DefaultPointcutAdvisor(
+            AnnotationMatchingPointcut.forMethodAnnotation(RetryOnConflict.class),
+            new RetryInterceptor(maxAttempts, backoff.toMillis()));
+    this.beforeExistingAdvisors = true;
+  }
+
+  private record RetryInterceptor(int maxAttempts, long backoffMillis) implements MethodInterceptor {
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+      if (TransactionSynchronizationManager.isActualTransactionActive()) {
+        return invocation.proceed();
+      }
+      for (int attempt = 1; ; attempt++) {
+        try {
+          return ((ProxyMethodInvocation) invocation).invocableClone().proceed();
+        } catch (DataAccessException e) {
+          if (attempt >= maxAttempts || !isConflict(e)) {
+            throw e;
+          }
+          LOG.warn("Retrying {} after conflict with a concurrent transaction (attempt {}): {}",
+                  invocation.getMethod().getName(), attempt, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+          Thread.sleep(ThreadLocalRandom.current().nextLong(backoffMillis * attempt + 1));
+        }
+      }
+    }
+
+    private static boolean isConflict(DataAccessException e) {
+      return e instanceof TransientDataAccessException
+              || NestedExceptionUtils.getMostSpecificCause(e) instanceof SQLTransientException;
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package at.ac.tuwien.sepm.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepm.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepm.assignment.individual.exception.NotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Cache of family trees by their format, root horse and number of generations.
+ * <p>
+ * Next to the trees the cache keeps a reverse index from every horse to the cached trees it is part of,
+ * so changing a horse only evicts the trees containing it, and all other trees stay cached.
+ * At most {@code family-tree.cache.max-size} trees are cached, evicting the least recently used one first.
+ * </p>
+ */
+@Component
+public class FamilyTreeCache {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private final int maxSize;
+  private final Map<Key, Entry> trees;
+  private final Map<Long, Set<Key>> treesByHorse = new HashMap<>();
+  // incremented on every invalidation, so trees loaded concurrently to a change are not cached
+  private long modifications;
+
+  public FamilyTreeCache(@Value("${family-tree.cache.max-size:500}") int maxSize) {
+    this.maxSize = maxSize;
+    // access ordered, so the eldest entry is the least recently used one
+    this.trees = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Loads the horses of a family tree.
+   */
+  @FunctionalInterface
+  public interface AncestorLoader {
+    List<Horse> load() throws NotFoundException;
+  }
+
+  /**
+   * Get a family tree from the cache, or load, convert and cache it if it is not cached.
+   *
+   * @param format      name of the format of the tree, trees of different formats are cached separately
+   * @param id          id of the root horse
+   * @param generations number of generations of the tree
+   * @param loader      loads the horses of the tree, if it is not cached
+   * @param converter   converts the loaded horses to the tree
+   * @param <T>         type of the tree
+   * @return the cached or newly loaded tree
+   * @throws NotFoundException if the loader does not find the root horse
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T get(String format, long id, long generations, AncestorLoader loader, Function<List<Horse>, T> converter)
+          throws NotFoundException {
+    LOG.trace("get({},{},{})", format, id, generations);
+    Key key = new Key(format, id, generations);
+    long modificationsBeforeLoad;
+    synchronized (this) {
+      Entry entry = trees.get(key);
+      if (entry != null) {
+        return (T) entry.tree();
+      }
+      modificationsBeforeLoad = modifications;
+    }
+
+    List<Horse> horses = loader.load();
+    T tree = converter.apply(horses);
+
+    synchronized (this) {
+      if (modifications == modificationsBeforeLoad) {
+        Set<Long> horseIds = new HashSet<>();
+        for (Horse horse : horses) {
+          horseIds.add(horse.getId());
+          treesByHorse.computeIfAbsent(horse.getId(), horseId -> new HashSet<>()).add(key);
+        }
+        trees.put(key, new Entry(tree, horseIds));
+        evictLeastRecentlyUsed();
+      }
+    }
+    return tree;
+  }
+
+  /**
+   * Evict all cached trees containing the horse with the given id.
+   * Has to be called whenever a horse is updated or deleted.
+   *
+   * @param horseId the id of the changed horse
+   */
+  public synchronized void invalidate(long horseId) {
+    LOG.trace("invalidate({})", horseId);
+    modifications++;
+    Set<Key> keys = treesByHorse.remove(horseId);
+    if (keys != null) {
+      for (Key key : keys) {
+        remove(key);
+      }
+      LOG.debug("Evicted {} family trees containing horse {}", keys.size(), horseId);
+    }
+  }
+
+  /**
+   * Evict all cached trees.
+   */
+  public synchronized void invalidateAll() {
+    LOG.trace("invalidateAll()");
+    modifications++;
+    trees.clear();
+    treesByHorse.clear();
+  }
+
+  /**
+   * Get the number of cached trees.
+   *
+   * @return the number of cached trees
+   */
+  public synchronized int size() {
+    return trees.size();
+  }
+
+  private void evictLeastRecentlyUsed() {
+    while (trees.size() > maxSize) {
+      remove(trees.keySet().iterator().next());
+    }
+  }
+
+  private void remove(Key key) {
+    Entry entry = trees.remove(key);
+    if (entry == null) {
+      return;
+    }
+    for (Long horseId : entry.horseIds()) {
+      Set<Key> keys = treesByHorse.get(horseId);
+      if (keys != null) {
+        keys.remove(key);
+        if (keys.isEmpty()) {
+          treesByHorse.remove(horseId);
+        }
+      }
+    }
+  }
+
+  private record Key(
+          String format,
+          long id,
+          long generations
+  ) {
+  }
+
+  private record Entry(
+          Object tree,
+          Set<Long> horseIds
+  ) {
+  }
+}
@@ -0,0 +1,297 @@
+package at.ac.tuwien.sepm.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseImportErrorDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseImportResultDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseImportRowDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseParentDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.OwnerDto;
+import at.ac.tuwien.sepm.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepm.assignment.individual.mapper.HorseMapper;
+import at.ac.tuwien.sepm.assignment.individual.persistence.HorseDao;
+import at.ac.tuwien.sepm.assignment.individual.service.OwnerService;
+import at.ac.tuwien.sepm.assignment.individual.type.Sex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.invoke.MethodHandles;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Imports horses row by row, without holding the whole import in memory.
+ * Only the keys of the rows are kept for the whole import, together with the ID, birthday and sex
+ * of the horses created from keyed rows, which is all a child needs from its parent.
+ * Memory therefore grows with the number of keyed rows, but not with the size of their data,
+ * and with the rows waiting for a parent that comes later in the import.
+ * <p>
+ * Rows referencing a parent by the key of another row wait until that parent has been created,
+ * so parents are always created before their children, no matter in which order they appear in the import.
+ * Rows that are ready are validated and created in chunks: the owners and stored parents of a chunk are fetched at once,
+ * and the valid horses of a chunk are created with a single JDBC batch in their own transaction.
+ * A failing row does not prevent the other rows from being imported, except for the rows referencing it as parent.
+ * </p>
+ */
+@Component
+public class HorseImporter {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private final HorseDao dao;
+  private final HorseMapper mapper;
+  private final HorseValidator validator;
+  private final OwnerService ownerService;
+  private final TransactionTemplate transactionTemplate;
+  private final int chunkSize;
+
+  public HorseImporter(
+          HorseDao dao,
+          HorseMapper mapper,
+          HorseValidator validator,
+          OwnerService ownerService,
+          PlatformTransactionManager transactionManager,
+          @Value("${horse.import.chunk-size:1000}") int chunkSize) {
+    this.dao = dao;
+    this.mapper = mapper;
+    this.validator = validator;
+    this.ownerService = ownerService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Import the horses of all given rows.
+   * Chunks are committed as soon as they are created, so a failure of the persistent data store
+   * leaves the chunks created before it in place.
+   *
+   * @param rows the rows to import, read one at a time
+   * @return the report of the import
+   */
+  public HorseImportResultDto importHorses(Iterator<HorseImportRowDto> rows) {
+    LOG.trace("importHorses()");
+    return new Import().run(rows);
+  }
+
+  /**
+   * State of a single import.
+   */
+  private class Import {
+    /** keys of all rows read, failed or not */
+    private final Set<String> keys = new HashSet<>();
+    /** keys of the rows that were not imported */
+    private final Set<String> failedKeys = new HashSet<>();
+    /** the created horses by the key of their row, to be used as parents */
+    private final Map<String, CreatedParent> created = new HashMap<>();
+    /** rows waiting for the creation of the parent with the given key */
+    private final Map<String, List<HorseImportRowDto>> waiting = new HashMap<>();
+    private final Deque<HorseImportRowDto> ready = new ArrayDeque<>();
+    private final List<HorseImportErrorDto> errors = new ArrayList<>();
+    private long rowsRead;
+    private long imported;
+    private long failed;
+    private long chunks;
+
+    HorseImportResultDto run(Iterator<HorseImportRowDto> rows) {
+      while (rows.hasNext()) {
+        read(rows.next());
+        while (ready.size() >= chunkSize) {
+          createChunk();
+        }
+      }
+      while (!ready.isEmpty()) {
+        createChunk();
+      }
+      List<HorseImportRowDto> unresolved = waiting.values().stream()
+              .flatMap(List::stream)
+              .sorted(Comparator.comparingLong(HorseImportRowDto::line))
+              .toList();
+      waiting.clear();
+      for (HorseImportRowDto row : unresolved) {
+        fail(row, List.of("Parent referenced by Horse not found in import, or part of a cycle of parents"), false);
+      }
+      errors.sort(Comparator.comparingLong(HorseImportErrorDto::line));
+      LOG.info("Import finished: {} rows read, {} horses imported, {} rows failed", rowsRead, imported, failed);
+      return new HorseImportResultDto(rowsRead, imported, failed, chunks, errors);
+    }
+
+    private void read(HorseImportRowDto row) {
+      rowsRead++;
+      List<String> rowErrors = new ArrayList<>(row.errors());
+      if (row.motherId() != null && row.motherKey() != null) {
+        rowErrors.add("Mother must be referenced either by ID or by key, not both");
+      }
+      if (row.fatherId() != null && row.fatherKey() != null) {
+        rowErrors.add("Father must be referenced either by ID or by key, not both");
+      }
+      if (row.key() != null && !keys.add(row.key())) {
+        rowErrors.add("Key '%s' is already used by another row".formatted(row.key()));
+        fail(row, rowErrors, false);
+        return;
+      }
+      if (!rowErrors.isEmpty()) {
+        fail(row, rowErrors, true);
+        return;
+      }
+      enqueue(row);
+    }
+
+    /**
+     * queue the row for creation, or let it wait for the first of its parents not created yet
+     */
+    private void enqueue(HorseImportRowDto row) {
+      for (String parentKey : new String[]{row.motherKey(), row.fatherKey()}) {
+        if (parentKey == null || created.containsKey(parentKey)) {
+          continue;
+        }
+        if (failedKeys.contains(parentKey)) {
+          fail(row, List.of("Parent '%s' referenced by Horse was not imported".formatted(parentKey)), true);
+        } else {
+          waiting.computeIfAbsent(parentKey, key -> new ArrayList<>()).add(row);
+        }
+        return;
+      }
+      ready.add(row);
+    }
+
+    private void createChunk() {
+      List<HorseImportRowDto> chunk = new ArrayList<>(Math.min(ready.size(), chunkSize));
+      while (chunk.size() < chunkSize && !ready.isEmpty()) {
+        chunk.add(ready.poll());
+      }
+      var ownerIds = chunk.stream()
+              .map(HorseImportRowDto::ownerId)
+              .filter(Objects::nonNull)
+              .collect(Collectors.toUnmodifiableSet());
+      var parentIds = chunk.stream()
+              .flatMap(row -> Stream.of(row.motherId(), row.fatherId()))
+              .filter(Objects::nonNull)
+              .collect(Collectors.toUnmodifiableSet());
+      Map<Long, OwnerDto> owners = ownerService.findAllById(ownerIds);
+      Map<Long, HorseParentDto> parents = new HashMap<>();
+      if (!parentIds.isEmpty()) {
+        dao.getAllById(parentIds).forEach(horse -> parents.put(horse.getId(), mapper.entityToParentDto(horse)));
+      }
+
+      List<HorseCreateDto> horses = new ArrayList<>(chunk.size());
+      for (HorseImportRowDto row : chunk) {
+        HorseParentDto mother = parent(row.motherId(), row.motherKey(), parents);
+        HorseParentDto father = parent(row.fatherId(), row.fatherKey(), parents);
+        horses.add(new HorseCreateDto(
+                row.name(),
+                row.description(),
+                row.dateOfBirth(),
+                row.sex(),
+                row.ownerId() == null ? null : new OwnerDto(row.ownerId(), null, null, null, null),
+                mother,
+                father));
+      }
+      List<List<String>> chunkErrors = validator.validateBatchForCreation(horses, owners, parents);
+
+      List<HorseImportRowDto> validRows = new ArrayList<>(chunk.size());
+      List<HorseCreateDto> validHorses = new ArrayList<>(chunk.size());
+      for (int i = 0; i < chunk.size(); i++) {
+        if (chunkErrors.get(i).isEmpty()) {
+          validRows.add(chunk.get(i));
+          validHorses.add(horses.get(i));
+        } else {
+          fail(chunk.get(i), chunkErrors.get(i), true);
+        }
+      }
+      List<Horse> createdHorses = validHorses.isEmpty()
+              ? List.of()
+              : transactionTemplate.execute(status -> dao.createAll(validHorses));
+      chunks++;
+      imported += createdHorses.size();
+      for (int i = 0; i < createdHorses.size(); i++) {
+        String key = validRows.get(i).key();
+        if (key != null) {
+          Horse horse = createdHorses.get(i);
+          created.put(key, new CreatedParent(horse.getId(), horse.getDateOfBirth(), horse.getSex()));
+          List<HorseImportRowDto> released = waiting.remove(key);
+          if (released != null) {
+            released.forEach(this::enqueue);
+          }
+        }
+      }
+      LOG.info("Import chunk {} done: {} rows read, {} horses imported, {} rows failed, {} rows waiting for parents",
+              chunks, rowsRead, imported, failed, waiting.values().stream().mapToInt(List::size).sum());
+    }
+
+    /**
+     * the parent of a row, either stored in the system or created earlier by this import.
+     * The returned parent is only a reference, if the parent could not be found,
+     * which is reported by the validation.
+     */
+    private HorseParentDto parent(Long id, String key, Map<Long, HorseParentDto> parents) {
+      if (key != null) {
+        HorseParentDto parent = created.get(key).toParentDto();
+        parents.put(parent.id(), parent);
+        return parent;
+      }
+      if (id == null) {
+        return null;
+      }
+      return parents.getOrDefault(id, new HorseParentDto(id, null, null, null, null, null));
+    }
+
+    /**
+     * record the errors of a row.
+     * If the row {@code ownsKey}, the rows waiting for it as their parent fail as well.
+     */
+    private void fail(HorseImportRowDto row, List<String> rowErrors, boolean ownsKey) {
+      Deque<HorseImportRowDto> failing = new ArrayDeque<>();
+      record(row, rowErrors);
+      if (ownsKey && row.key() != null) {
+        failing.add(row);
+      }
+      while (!failing.isEmpty()) {
+        String key = failing.poll().key();
+        failedKeys.add(key);
+        List<HorseImportRowDto> dependents = waiting.remove(key);
+        if (dependents == null) {
+          continue;
+        }
+        for (HorseImportRowDto dependent : dependents) {
+          record(dependent, List.of("Parent '%s' referenced by Horse was not imported".formatted(key)));
+          if (dependent.key() != null) {
+            failing.add(dependent);
+          }
+        }
+      }
+    }
+
+    private void record(HorseImportRowDto row, List<String> rowErrors) {
+      failed++;
+      if (errors.size() < HorseImportResultDto.MAX_REPORTED_ERRORS) {
+        errors.add(new HorseImportErrorDto(row.line(), row.key(), rowErrors));
+      }
+    }
+  }
+
+  /**
+   * The data of a horse created by the import, that is needed to validate its children.
+   */
+  private record CreatedParent(
+          long id,
+          LocalDate dateOfBirth,
+          Sex sex
+  ) {
+    HorseParentDto toParentDto() {
+      return new HorseParentDto(id, null, null, dateOfBirth, sex, null);
+    }
+  }
+}
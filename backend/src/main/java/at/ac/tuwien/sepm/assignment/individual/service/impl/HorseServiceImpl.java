@@ -1,49 +1,97 @@
 package at.ac.tuwien.sepm.assignment.individual.service.impl;
 
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseBatchResultDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseCursor;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseDescendantsDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseDetailDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseFamilyTreeDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseFamilyTreeTableDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseImportResultDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseImportRowDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorsePageDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseParentDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseRevisionDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseSearchDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseSharedFamilyTreeDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.OwnerDto;
 import at.ac.tuwien.sepm.assignment.individual.entity.Horse;
 import at.ac.tuwien.sepm.assignment.individual.exception.ConflictException;
 import at.ac.tuwien.sepm.assignment.individual.exception.FatalException;
 import at.ac.tuwien.sepm.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepm.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepm.assignment.individual.export.ExportWriter;
 import at.ac.tuwien.sepm.assignment.individual.mapper.HorseMapper;
+import at.ac.tuwien.sepm.assignment.individual.persistence.AfterCommit;
 import at.ac.tuwien.sepm.assignment.individual.persistence.HorseDao;
 import at.ac.tuwien.sepm.assignment.individual.service.HorseService;
 import at.ac.tuwien.sepm.assignment.individual.service.OwnerService;
+import at.ac.tuwien.sepm.assignment.individual.type.HorseField;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+/**
+ * Every method reading from the persistent data store runs in a single read-only transaction,
+ * every method writing to it in a single {@link Isolation#REPEATABLE_READ} transaction,
+ * which is retried if it conflicts with a concurrent one, see {@link RetryOnConflict}.
+ * Caches are only updated once the writing transaction is committed.
+ * Family trees are built from the in-memory pedigree index, and streams outlive the method returning them,
+ * so neither runs in a transaction.
+ */
 @Service
 public class HorseServiceImpl implements HorseService {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int DEFAULT_PAGE_SIZE = 100;
+  private static final int OWNER_CHUNK_SIZE = 500;
+  private static final long MAX_GENERATIONS = 100L;
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
   private final HorseDao dao;
   private final HorseMapper mapper;
   private final HorseValidator validator;
   private final OwnerService ownerService;
+  private final FamilyTreeCache familyTreeCache;
+  private final HorseImporter importer;
 
-  public HorseServiceImpl(HorseDao dao, HorseMapper mapper, HorseValidator validator, OwnerService ownerService) {
+  public HorseServiceImpl(
+          HorseDao dao,
+          HorseMapper mapper,
+          HorseValidator validator,
+          OwnerService ownerService,
+          FamilyTreeCache familyTreeCache,
+          HorseImporter importer) {
     this.dao = dao;
     this.mapper = mapper;
     this.validator = validator;
     this.ownerService = ownerService;
+    this.familyTreeCache = familyTreeCache;
+    this.importer = importer;
   }
 
   @Override
+  @Transactional(readOnly = true)
   public Stream<HorseListDto> allHorses() {
     LOG.trace("allHorses()");
     HorseSearchDto emptyParams = new HorseSearchDto(
@@ -51,6 +99,8 @@ public class HorseServiceImpl implements HorseService {
             null,
             null,
             null,
+            null,
+            null,
             null);
     return searchForHorses(emptyParams);
   }
@@ -58,20 +108,159 @@ public class HorseServiceImpl implements HorseService {
   @Override
   public HorseFamilyTreeDto getFamilyTree(Long id, Long generations) throws NotFoundException {
     LOG.trace("getFamilyTree({})", id);
-    if (generations <= 0) {
-      generations = 0L;
+    long limitedGenerations = limitGenerations(generations);
+    return familyTreeCache.get("nested", id, limitedGenerations,
+            () -> dao.getFamilyTree(id, limitedGenerations),
+            ancestorsList -> mapper.entityToFamilyTreeDto(id, ancestorsList));
+  }
+
+  @Override
+  public String getFamilyTreeRevision(Long id, Long generations) throws NotFoundException {
+    LOG.trace("getFamilyTreeRevision({},{})", id, generations);
+    // FNV-1a over the IDs and versions of all ancestors, walked in the in-memory index
+    long hash = FNV_OFFSET_BASIS;
+    for (Horse horse : dao.getFamilyTree(id, limitGenerations(generations))) {
+      hash = fnv(fnv(hash, horse.getId()), horse.getVersion());
     }
-    if (generations > 100) {
-      generations = 100L;
+    return Long.toHexString(hash);
+  }
+
+  private static long fnv(long hash, long value) {
+    for (int i = 0; i < Long.BYTES; i++) {
+      hash ^= (value >>> (8 * i)) & 0xff;
+      hash *= FNV_PRIME;
     }
-    List<Horse> ancestorsList = dao.getFamilyTree(id, generations);
-    return mapper.entityToFamilyTreeDto(id, ancestorsList);
+    return hash;
+  }
+
+  @Override
+  public HorseSharedFamilyTreeDto getSharedFamilyTree(Long id, Long generations) throws NotFoundException {
+    LOG.trace("getSharedFamilyTree({})", id);
+    long limitedGenerations = limitGenerations(generations);
+    return familyTreeCache.get("shared", id, limitedGenerations,
+            () -> dao.getFamilyTree(id, limitedGenerations),
+            ancestorsList -> mapper.entityToSharedFamilyTreeDto(id, ancestorsList));
+  }
+
+  @Override
+  public HorseFamilyTreeTableDto getFamilyTreeTable(Long id, Long generations) throws NotFoundException {
+    LOG.trace("getFamilyTreeTable({})", id);
+    long limitedGenerations = limitGenerations(generations);
+    return familyTreeCache.get("flat", id, limitedGenerations,
+            () -> dao.getFamilyTree(id, limitedGenerations),
+            ancestorsList -> mapper.entityToFamilyTreeTableDto(id, ancestorsList));
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public HorseDescendantsDto getDescendants(Long id, Long generations) throws NotFoundException {
+    LOG.trace("getDescendants({},{})", id, generations);
+    List<Horse> descendants = dao.getDescendants(id, limitGenerations(generations));
+    return mapper.entityToDescendantsDto(descendants);
+  }
+
+  /**
+   * limits the number of generations of a family tree to between 0 and {@value MAX_GENERATIONS}
+   *
+   * @param generations the requested number of generations
+   * @return the number of generations to fetch
+   */
+  private static long limitGenerations(Long generations) {
+    return Math.max(0L, Math.min(generations, MAX_GENERATIONS));
   }
 
   @Override
+  @Transactional(readOnly = true)
   public Stream<HorseListDto> searchForHorses(HorseSearchDto searchParams) {
     LOG.trace("searchForHorses({})", searchParams);
     var horses = dao.searchForHorses(searchParams);
+    Map<Long, OwnerDto> ownerMap = ownerMapForHorses(horses);
+    return horses.stream().map(horse -> mapper.entityToListDto(horse, ownerMap));
+  }
+
+  @Override
+  public Stream<HorseListDto> streamHorses(HorseSearchDto searchParams, Set<HorseField> fields) {
+    LOG.trace("streamHorses({},{})", searchParams, fields);
+    Stream<Horse> horses = dao.streamHorses(searchParams, listFields(fields));
+    Iterator<List<Horse>> chunks = chunks(horses.iterator(), OWNER_CHUNK_SIZE);
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunks, Spliterator.ORDERED), false)
+            .flatMap(chunk -> {
+              Map<Long, OwnerDto> ownerMap = ownerMapForHorses(chunk);
+              return chunk.stream().map(horse -> mapper.entityToListDto(horse, ownerMap));
+            })
+            .onClose(horses::close);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public HorsePageDto searchForHorsePage(HorseSearchDto searchParams, Set<HorseField> fields) throws ValidationException {
+    LOG.trace("searchForHorsePage({},{})", searchParams, fields);
+    validator.validateForPagedSearch(searchParams);
+    int pageSize = searchParams.pageSize() == null ? DEFAULT_PAGE_SIZE : searchParams.pageSize();
+    HorseCursor after = searchParams.cursor() == null ? null : HorseCursor.decode(searchParams.cursor());
+
+    var horses = dao.searchForHorses(searchParams, after, pageSize, listFields(fields));
+    Map<Long, OwnerDto> ownerMap = ownerMapForHorses(horses);
+    String next = null;
+    if (horses.size() == pageSize) {
+      Horse last = horses.get(horses.size() - 1);
+      next = new HorseCursor(last.getName(), last.getId()).encode();
+    }
+    return new HorsePageDto(
+            horses.stream().map(horse -> mapper.entityToListDto(horse, ownerMap)).toList(),
+            next);
+  }
+
+  /**
+   * splits the elements of an iterator into consecutive lists of at most {@code size} elements,
+   * reading from the iterator only when the next list is requested
+   *
+   * @param elements the elements to split
+   * @param size     the maximum size of a list
+   * @param <T>      type of the elements
+   * @return an Iterator over the lists of elements
+   */
+  private static <T> Iterator<List<T>> chunks(Iterator<T> elements, int size) {
+    return new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        return elements.hasNext();
+      }
+
+      @Override
+      public List<T> next() {
+        if (!elements.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        List<T> chunk = new ArrayList<>(size);
+        while (chunk.size() < size && elements.hasNext()) {
+          chunk.add(elements.next());
+        }
+        return chunk;
+      }
+    };
+  }
+
+  /**
+   * restricts requested fields to those of a horse in a list
+   *
+   * @param fields the requested fields
+   * @return the requested fields, that are part of {@link HorseListDto}
+   */
+  private static Set<HorseField> listFields(Set<HorseField> fields) {
+    Set<HorseField> listFields = EnumSet.noneOf(HorseField.class);
+    listFields.addAll(fields);
+    listFields.removeIf(field -> !HorseField.LIST.contains(field) && !HorseField.LIST_OPTIONAL.contains(field));
+    return listFields;
+  }
+
+  /**
+   * fetches the owners of all given horses at once
+   *
+   * @param horses horses of which the owners are fetched
+   * @return a Map containing the owners of {@code horses} by their id
+   */
+  private Map<Long, OwnerDto> ownerMapForHorses(List<Horse> horses) {
     var ownerIds = horses.stream()
             .map(Horse::getOwnerId)
             .filter(Objects::nonNull)
@@ -83,106 +272,122 @@ public class HorseServiceImpl implements HorseService {
     } catch (NotFoundException e) {
       throw new FatalException("Horse, that is already persisted, refers to non-existing owner", e);
     }
-
-    return horses.stream().map(horse -> mapper.entityToListDto(horse, ownerMap));
+    return ownerMap;
   }
 
   @Override
+  @Transactional(isolation = Isolation.REPEATABLE_READ)
+  @RetryOnConflict
   public HorseDetailDto update(HorseDetailDto horse) throws NotFoundException, ValidationException, ConflictException {
     LOG.trace("update({})", horse);
     validator.validateForUpdate(horse);
-    if (isParent(horse)) {
-      List<HorseDetailDto> children = dao.getAllChildren(horse)
-              .stream()
-              .map((child) -> mapper.entityToDetailDto(child,
-                      ownerMapForSingleId(child.getOwnerId()),
-                      parentMapForSingleId(child.getMotherId()),
-                      parentMapForSingleId(child.getFatherId()))).toList();
-      validator.validateParentChildRelation(children, horse, dao.getById(horse.id()).getSex());
-    }
+    validator.validateParentChildRelation(horse, dao.getOffspringSummary(horse.id()));
     var updatedHorse = dao.update(horse);
-    return mapper.entityToDetailDto(
-            updatedHorse,
-            ownerMapForSingleId(updatedHorse.getOwnerId()),
-            parentMapForSingleId(updatedHorse.getMotherId()),
-            parentMapForSingleId(updatedHorse.getFatherId()));
+    AfterCommit.run(() -> familyTreeCache.invalidate(updatedHorse.getId()));
+    return dao.getDetailById(updatedHorse.getId(), HorseField.DETAIL);
   }
 
 
   @Override
+  @Transactional(readOnly = true)
   public HorseDetailDto getById(long id) throws NotFoundException {
     LOG.trace("details({})", id);
-    Horse horse = dao.getById(id);
-    return mapper.entityToDetailDto(
-            horse,
-            ownerMapForSingleId(horse.getOwnerId()),
-            parentMapForSingleId(horse.getMotherId()),
-            parentMapForSingleId(horse.getFatherId()));
+    return dao.getDetailById(id, HorseField.DETAIL);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public HorseDetailDto getById(long id, Set<HorseField> fields) throws NotFoundException {
+    LOG.trace("details({},{})", id, fields);
+    return dao.getDetailById(id, fields);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public HorseRevisionDto getRevision(long id) throws NotFoundException {
+    LOG.trace("getRevision({})", id);
+    return dao.getRevisionById(id);
   }
 
   @Override
+  @Transactional(isolation = Isolation.REPEATABLE_READ)
+  @RetryOnConflict
   public HorseDetailDto create(HorseCreateDto horse) throws ValidationException, ConflictException {
     LOG.trace("create({})", horse);
     validator.validateForCreation(horse);
     var newHorse = dao.create(horse);
-    return mapper.entityToDetailDto(
-            newHorse,
-            ownerMapForSingleId(newHorse.getOwnerId()),
-            parentMapForSingleId(newHorse.getMotherId()),
-            parentMapForSingleId(newHorse.getFatherId()));
+    try {
+      return dao.getDetailById(newHorse.getId(), HorseField.DETAIL);
+    } catch (NotFoundException e) {
+      throw new FatalException("Horse %d not found right after creating it".formatted(newHorse.getId()), e);
+    }
   }
 
   @Override
-  public void delete(long id) throws NotFoundException {
-    LOG.trace("delete({})", id);
-    dao.delete(id);
-  }
+  @Transactional(isolation = Isolation.REPEATABLE_READ)
+  @RetryOnConflict
+  public List<HorseBatchResultDto> createBatch(List<HorseCreateDto> horses) {
+    LOG.trace("createBatch({})", horses.size());
+    if (horses.isEmpty()) {
+      return List.of();
+    }
+    var ownerIds = horses.stream()
+            .map(HorseCreateDto::ownerId)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toUnmodifiableSet());
+    var parentIds = horses.stream()
+            .flatMap(horse -> Stream.of(horse.motherId(), horse.fatherId()))
+            .filter(Objects::nonNull)
+            .collect(Collectors.toUnmodifiableSet());
+    Map<Long, OwnerDto> owners = ownerService.findAllById(ownerIds);
+    Map<Long, HorseParentDto> parents = parentIds.isEmpty()
+            ? Map.of()
+            : dao.getAllById(parentIds).stream()
+                    .map(mapper::entityToParentDto)
+                    .collect(Collectors.toUnmodifiableMap(HorseParentDto::id, Function.identity()));
 
-  /**
-   * checks if given horse is parent of any other horse
-   *
-   * @param horse given horse to be checked for children
-   * @return true if horse is parent, false otherwise
-   */
-  private boolean isParent(HorseDetailDto horse) {
-    LOG.trace("isParent({})", horse);
-    return dao.isParent(horse);
+    List<List<String>> errors = validator.validateBatchForCreation(horses, owners, parents);
+    List<HorseCreateDto> validHorses = new ArrayList<>();
+    for (int i = 0; i < horses.size(); i++) {
+      if (errors.get(i).isEmpty()) {
+        validHorses.add(horses.get(i));
+      }
+    }
+    Iterator<Horse> created = validHorses.isEmpty()
+            ? Collections.emptyIterator()
+            : dao.createAll(validHorses).iterator();
+
+    List<HorseBatchResultDto> results = new ArrayList<>(horses.size());
+    for (int i = 0; i < horses.size(); i++) {
+      if (errors.get(i).isEmpty()) {
+        var detail = mapper.entityToDetailDto(created.next(), owners, parents, parents);
+        results.add(new HorseBatchResultDto(i, detail, List.of()));
+      } else {
+        results.add(new HorseBatchResultDto(i, null, errors.get(i)));
+      }
+    }
+    return results;
   }
 
+  @Override
+  public HorseImportResultDto importHorses(Iterator<HorseImportRowDto> rows) {
+    LOG.trace("importHorses()");
+    return importer.importHorses(rows);
+  }
 
-  /**
-   * maps an owner to a Map with a single key value pair
-   *
-   * @param ownerId id of owner to be mapped
-   * @return a Map with one pair, with the key being the owners id and the value being the representative {@link OwnerDto}
-   */
-  private Map<Long, OwnerDto> ownerMapForSingleId(Long ownerId) {
-    LOG.trace("ownerMapForSingleId({})", ownerId);
-    try {
-      return ownerId == null
-              ? null
-              : Collections.singletonMap(ownerId, ownerService.getById(ownerId));
-    } catch (NotFoundException e) {
-      throw new FatalException("Owner %d referenced by horse not found".formatted(ownerId));
-    }
+  @Override
+  public void exportHorses(ExportWriter writer) throws IOException {
+    LOG.trace("exportHorses()");
+    dao.exportHorses(writer);
   }
 
-  /**
-   * maps a horse, representing a Parent, to a Map with a single key value pair
-   *
-   * @param parentId id of horse to be mapped
-   * @return a Map with one pair, with the key being the horses id and the value being
-   *        the representative {@link HorseParentDto}
-   */
-  private Map<Long, HorseParentDto> parentMapForSingleId(Long parentId) {
-    LOG.trace("parentMapForSingleId({})", parentId);
-    try {
-      return parentId == null
-              ? null
-              : Collections.singletonMap(parentId, mapper.detailDtoToParentDto(getById(parentId)));
-    } catch (NotFoundException e) {
-      throw new FatalException("Parent %d referenced by horse not found".formatted(parentId));
-    }
+  @Override
+  @Transactional(isolation = Isolation.REPEATABLE_READ)
+  @RetryOnConflict
+  public void delete(long id) throws NotFoundException {
+    LOG.trace("delete({})", id);
+    dao.delete(id);
+    AfterCommit.run(() -> familyTreeCache.invalidate(id));
   }
 
 }
@@ -1,8 +1,11 @@
 package at.ac.tuwien.sepm.assignment.individual.service.impl;
 
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseCursor;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseDetailDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseOffspringDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseParentDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseSearchDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.OwnerDto;
 import at.ac.tuwien.sepm.assignment.individual.exception.ConflictException;
 import at.ac.tuwien.sepm.assignment.individual.exception.FatalException;
@@ -18,6 +21,7 @@ import java.lang.invoke.MethodHandles;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Validator for Horses
@@ -25,6 +29,7 @@ import java.util.List;
 @Component
 public class HorseValidator {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int MAX_PAGE_SIZE = 1000;
   private final OwnerService ownerService;
 
   protected HorseValidator(OwnerService ownerDao) {
@@ -98,29 +103,99 @@ public class HorseValidator {
     }
   }
 
+  /**
+   * validate a batch of Horses for Creation.
+   * Owners and parents are checked against the given prefetched maps, instead of querying them one by one.
+   * The parents given in the batch are replaced by the persisted parents, before their birthdays and sexes are checked.
+   *
+   * @param horses  data of the horses to be created
+   * @param owners  all existing owners referenced by {@code horses}, by their id
+   * @param parents all existing parents referenced by {@code horses}, by their id
+   * @return for every horse, in order, the list of validation and conflict errors; an empty list if the horse is valid
+   */
+  public List<List<String>> validateBatchForCreation(List<HorseCreateDto> horses,
+                                                     Map<Long, OwnerDto> owners,
+                                                     Map<Long, HorseParentDto> parents) {
+    LOG.trace("validateBatchForCreation({})", horses.size());
+    List<List<String>> batchErrors = new ArrayList<>(horses.size());
+    for (HorseCreateDto horse : horses) {
+      List<String> errors = new ArrayList<>();
+      errors.addAll(validateHorseDateOfBirth(horse.dateOfBirth()));
+      errors.addAll(validateHorseName(horse.name()));
+      errors.addAll(validateHorseSex(horse.sex()));
+      errors.addAll(validateDescription(horse.description()));
+      if (horse.ownerId() != null && !owners.containsKey(horse.ownerId())) {
+        errors.add("Owner %d referenced by Horse not found".formatted(horse.ownerId()));
+      }
+      HorseParentDto mother = null;
+      if (horse.motherId() != null) {
+        mother = parents.get(horse.motherId());
+        if (mother == null) {
+          errors.add("Mother %d referenced by Horse not found".formatted(horse.motherId()));
+        }
+      }
+      HorseParentDto father = null;
+      if (horse.fatherId() != null) {
+        father = parents.get(horse.fatherId());
+        if (father == null) {
+          errors.add("Father %d referenced by Horse not found".formatted(horse.fatherId()));
+        }
+      }
+      try {
+        validateParents(mother, father, horse.dateOfBirth());
+      } catch (ValidationException | ConflictException e) {
+        errors.addAll(e.errors());
+      }
+      batchErrors.add(errors);
+    }
+    return batchErrors;
+  }
+
+  /**
+   * validate the paging parameters of a paged search for Horses
+   *
+   * @param searchParams the search parameters, including page size and cursor
+   * @throws ValidationException if the page size is out of range or the cursor is malformed
+   */
+  public void validateForPagedSearch(HorseSearchDto searchParams) throws ValidationException {
+    LOG.trace("validateForPagedSearch({})", searchParams);
+    List<String> validationErrors = new ArrayList<>();
+
+    Integer pageSize = searchParams.pageSize();
+    if (pageSize != null && (pageSize < 1 || pageSize > MAX_PAGE_SIZE)) {
+      validationErrors.add("Page size must be between 1 and %d".formatted(MAX_PAGE_SIZE));
+    }
+    if (searchParams.cursor() != null) {
+      try {
+        HorseCursor.decode(searchParams.cursor());
+      } catch (IllegalArgumentException e) {
+        validationErrors.add("Cursor is malformed");
+      }
+    }
+    if (!validationErrors.isEmpty()) {
+      throw new ValidationException("Error(s) searching Horses", validationErrors);
+    }
+  }
+
   /**
    * validate Relation between a Horse and its Children
    *
-   * @param children children of the given parent horse
-   * @param parent   parent horse
-   * @param oldSex   sex of the parent horse persistent in the system
+   * @param parent    parent horse, with the data it is to be updated to
+   * @param offspring summary of the children of the parent horse as currently stored in the system
    * @throws ConflictException if the data given for the parent is in conflict with the data currently in the
    *                           system (child older than parent, ...)
    */
-  public void validateParentChildRelation(List<HorseDetailDto> children, HorseDetailDto parent, Sex oldSex) throws ConflictException {
-    LOG.trace("validateParentChildRelation({},{},{})", children, parent, oldSex);
-    List<String> conflictErrors = new ArrayList<>();
-    LocalDate earliestBirthdayOfChild = LocalDate.now();
-    for (HorseDetailDto child : children) {
-      if (child.dateOfBirth().compareTo(earliestBirthdayOfChild) < 0) {
-        earliestBirthdayOfChild = child.dateOfBirth();
-      }
+  public void validateParentChildRelation(HorseDetailDto parent, HorseOffspringDto offspring) throws ConflictException {
+    LOG.trace("validateParentChildRelation({},{})", parent, offspring);
+    if (!offspring.isParent()) {
+      return;
     }
-    if (earliestBirthdayOfChild.compareTo(parent.dateOfBirth()) < 0) {
+    List<String> conflictErrors = new ArrayList<>();
+    if (offspring.earliestChildDateOfBirth().compareTo(parent.dateOfBirth()) < 0) {
       conflictErrors.add("Cannot change birthday to given date because there are one or multiple children of this horse "
               + "with birthdays earlier than this date");
     }
-    if (parent.sex() != oldSex) {
+    if (parent.sex() != offspring.sex()) {
       conflictErrors.add("Cannot change Sex of this horse because it is a parent to at least one Horse");
     }
     if (!conflictErrors.isEmpty()) {
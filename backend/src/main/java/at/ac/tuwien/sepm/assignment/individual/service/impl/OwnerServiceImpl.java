@@ -5,13 +5,17 @@ import at.ac.tuwien.sepm.assignment.individual.dto.OwnerDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.OwnerSearchDto;
 import at.ac.tuwien.sepm.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepm.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepm.assignment.individual.export.ExportWriter;
 import at.ac.tuwien.sepm.assignment.individual.mapper.OwnerMapper;
 import at.ac.tuwien.sepm.assignment.individual.persistence.OwnerDao;
 import at.ac.tuwien.sepm.assignment.individual.service.OwnerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.Collection;
 import java.util.Map;
@@ -19,6 +23,10 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+/**
+ * Reads run in read-only transactions, and writes in {@link Isolation#REPEATABLE_READ} transactions
+ * retried on conflicts, like in {@link HorseServiceImpl}.
+ */
 @Service
 public class OwnerServiceImpl implements OwnerService {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
@@ -37,12 +45,14 @@ public class OwnerServiceImpl implements OwnerService {
   }
 
   @Override
+  @Transactional(readOnly = true)
   public OwnerDto getById(long id) throws NotFoundException {
     LOG.trace("getById({})", id);
     return mapper.entityToDto(dao.getById(id));
   }
 
   @Override
+  @Transactional(readOnly = true)
   public Map<Long, OwnerDto> getAllById(Collection<Long> ids) throws NotFoundException {
     LOG.trace("getAllById({})", ids);
     Map<Long, OwnerDto> owners =
@@ -58,6 +68,19 @@ public class OwnerServiceImpl implements OwnerService {
   }
 
   @Override
+  @Transactional(readOnly = true)
+  public Map<Long, OwnerDto> findAllById(Collection<Long> ids) {
+    LOG.trace("findAllById({})", ids);
+    if (ids.isEmpty()) {
+      return Map.of();
+    }
+    return dao.getAllById(ids).stream()
+            .map(mapper::entityToDto)
+            .collect(Collectors.toUnmodifiableMap(OwnerDto::id, Function.identity()));
+  }
+
+  @Override
+  @Transactional(readOnly = true)
   public Stream<OwnerDto> search(OwnerSearchDto searchParameters) {
     LOG.trace("search({})", searchParameters);
     return dao.search(searchParameters).stream()
@@ -65,9 +88,17 @@ public class OwnerServiceImpl implements OwnerService {
   }
 
   @Override
+  @Transactional(isolation = Isolation.REPEATABLE_READ)
+  @RetryOnConflict
   public OwnerDto create(OwnerCreateDto newOwner) throws ValidationException {
     LOG.trace("create({})", newOwner);
     validator.validateOwnerForCreation(newOwner);
     return mapper.entityToDto(dao.create(newOwner));
   }
+
+  @Override
+  public void exportOwners(ExportWriter writer) throws IOException {
+    LOG.trace("exportOwners()");
+    dao.exportOwners(writer);
+  }
 }
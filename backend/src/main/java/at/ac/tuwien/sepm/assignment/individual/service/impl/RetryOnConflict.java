@@ -0,0 +1,18 @@
+package at.ac.tuwien.sepm.assignment.individual.service.impl;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a transactional service method, that is retried, if its transaction fails because of a conflict
+ * with a concurrent transaction, see {@link ConflictRetryPostProcessor}.
+ * The method must not have any effects outside its transaction, except ones deferred until its commit.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@interface RetryOnConflict {
+}
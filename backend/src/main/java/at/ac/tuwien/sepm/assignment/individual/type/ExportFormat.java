@@ -0,0 +1,25 @@
+package at.ac.tuwien.sepm.assignment.individual.type;
+
+/**
+ * Enum representing the formats data can be exported in
+ */
+public enum ExportFormat {
+  CSV("text/csv", "csv"),
+  NDJSON("application/x-ndjson", "ndjson");
+
+  private final String contentType;
+  private final String fileExtension;
+
+  ExportFormat(String contentType, String fileExtension) {
+    this.contentType = contentType;
+    this.fileExtension = fileExtension;
+  }
+
+  public String contentType() {
+    return contentType;
+  }
+
+  public String fileExtension() {
+    return fileExtension;
+  }
+}
@@ -0,0 +1,64 @@
+package at.ac.tuwien.sepm.assignment.individual.type;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Enum representing the properties of a Horse, that can be requested as sparse fieldset
+ */
+public enum HorseField {
+  ID("id"),
+  NAME("name"),
+  DESCRIPTION("description"),
+  DATE_OF_BIRTH("dateOfBirth"),
+  SEX("sex"),
+  OWNER("owner"),
+  MOTHER("mother"),
+  FATHER("father"),
+  VERSION("version");
+
+  /**
+   * The fields of a horse in a list.
+   */
+  public static final Set<HorseField> LIST = Collections.unmodifiableSet(EnumSet.of(ID, NAME, DATE_OF_BIRTH, SEX, OWNER));
+  /**
+   * The fields of a horse in a list, that are only loaded if they are requested.
+   */
+  public static final Set<HorseField> LIST_OPTIONAL = Collections.unmodifiableSet(EnumSet.of(DESCRIPTION));
+  /**
+   * The fields of the detail of a horse.
+   */
+  public static final Set<HorseField> DETAIL = Collections.unmodifiableSet(EnumSet.allOf(HorseField.class));
+
+  private final String property;
+
+  HorseField(String property) {
+    this.property = property;
+  }
+
+  /**
+   * Get the name of the property of this field in the DTOs.
+   *
+   * @return the name of the property
+   */
+  public String property() {
+    return property;
+  }
+
+  /**
+   * Get the field of the DTO property with the given name.
+   *
+   * @param property the name of the property
+   * @return the field of the property
+   * @throws IllegalArgumentException if there is no field with that property
+   */
+  public static HorseField ofProperty(String property) {
+    for (HorseField field : values()) {
+      if (field.property.equals(property)) {
+        return field;
+      }
+    }
+    throw new IllegalArgumentException("Unknown field '%s'".formatted(property));
+  }
+}
@@ -0,0 +1,9 @@
+-- keyset pagination by name and ID
+CREATE INDEX IF NOT EXISTS horse_name_id ON horse (name, id);
+-- search by sex and birthdate
+CREATE INDEX IF NOT EXISTS horse_sex_date_of_birth ON horse (sex, date_of_birth);
+CREATE INDEX IF NOT EXISTS horse_date_of_birth ON horse (date_of_birth);
+-- joins on owners, and lookups of children
+CREATE INDEX IF NOT EXISTS horse_owner_id ON horse (owner_id);
+CREATE INDEX IF NOT EXISTS horse_mother_id ON horse (mother_id);
+CREATE INDEX IF NOT EXISTS horse_father_id ON horse (father_id);
@@ -0,0 +1,11 @@
+CREATE TABLE IF NOT EXISTS horse_trigram
+(
+    field    CHAR(1)    NOT NULL,
+    trigram  VARCHAR(3) NOT NULL,
+    horse_id BIGINT     NOT NULL,
+    PRIMARY KEY (field, trigram, horse_id),
+    FOREIGN KEY (horse_id) REFERENCES horse(id) ON DELETE CASCADE
+);
+
+CREATE TRIGGER IF NOT EXISTS horse_trigram_trigger AFTER INSERT, UPDATE ON horse
+    FOR EACH ROW CALL 'at.ac.tuwien.sepm.assignment.individual.persistence.impl.HorseTrigramTrigger';
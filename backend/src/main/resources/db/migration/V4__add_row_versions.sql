@@ -0,0 +1,3 @@
+-- incremented on every update of a row, for optimistic concurrency control and conditional requests
+ALTER TABLE owner ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE horse ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
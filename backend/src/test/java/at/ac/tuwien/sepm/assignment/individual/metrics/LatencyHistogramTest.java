@@ -0,0 +1,34 @@
+package at.ac.tuwien.sepm.assignment.individual.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void quantilesAreWithinRelativeErrorOfRecordedLatencies() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int millis = 1; millis <= 1000; millis++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+    assertThat(histogram.count()).isEqualTo(1000);
+    assertThat(histogram.sumSeconds()).isCloseTo(500.5, within(1e-9));
+    assertThat(histogram.maxSeconds()).isEqualTo(1.0);
+    assertThat(histogram.quantileSeconds(0.5)).isBetween(0.5, 0.5 * 1.07);
+    assertThat(histogram.quantileSeconds(0.99)).isBetween(0.99, 1.0);
+    assertThat(histogram.quantileSeconds(0.999)).isBetween(0.999, 1.0);
+  }
+
+  @Test
+  public void everyLatencyFallsIntoBucketBoundedByIt() {
+    for (long micros : new long[]{0, 1, 15, 16, 17, 31, 32, 33, 1000, 123_456_789L}) {
+      int bucket = LatencyHistogram.bucketOf(micros);
+      assertThat(LatencyHistogram.upperBoundOf(bucket)).isGreaterThanOrEqualTo(micros);
+      assertThat(bucket == 0 || LatencyHistogram.upperBoundOf(bucket - 1) < micros).isTrue();
+    }
+  }
+}
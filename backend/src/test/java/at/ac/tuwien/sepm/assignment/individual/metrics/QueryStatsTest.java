@@ -0,0 +1,42 @@
+package at.ac.tuwien.sepm.assignment.individual.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QueryStatsTest {
+
+  @AfterEach
+  public void stop() {
+    QueryStats.stop();
+  }
+
+  @Test
+  public void statementsDifferingOnlyInLiteralsHaveTheSameShape() {
+    assertThat(QueryStats.shape("SELECT * FROM horse  WHERE id = 42 AND name = 'Wendy''s'"))
+            .isEqualTo(QueryStats.shape("SELECT * FROM horse WHERE id = -7 AND name = 'x'"));
+    assertThat(QueryStats.shape("SELECT * FROM owner WHERE id IN (?, ?, ?)"))
+            .isEqualTo(QueryStats.shape("SELECT * FROM owner WHERE id IN (?)"));
+    assertThat(QueryStats.shape("SELECT * FROM owner WHERE id = ?"))
+            .isNotEqualTo(QueryStats.shape("SELECT * FROM horse WHERE id = ?"));
+  }
+
+  @Test
+  public void mostRepeatedShapeIsReported() {
+    var stats = QueryStats.start();
+    assertThat(QueryStats.current()).isSameAs(stats);
+    for (int i = 0; i < 3; i++) {
+      stats.statement(QueryStats.shape("SELECT * FROM owner WHERE id = " + i), 10);
+    }
+    stats.statement(QueryStats.shape("SELECT * FROM horse"), 10);
+    stats.fetch(true, 5);
+    stats.fetch(false, 5);
+
+    assertThat(stats.statements()).isEqualTo(4);
+    assertThat(stats.rows()).isEqualTo(1);
+    assertThat(stats.nanos()).isEqualTo(50);
+    assertThat(stats.mostRepeated().getValue()).isEqualTo(3);
+    assertThat(stats.mostRepeated().getKey()).contains("owner");
+  }
+}
@@ -1,9 +1,14 @@
 package at.ac.tuwien.sepm.assignment.individual.persistence;
 
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseDetailDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseSearchDto;
 import at.ac.tuwien.sepm.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepm.assignment.individual.exception.ConflictException;
 import at.ac.tuwien.sepm.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepm.assignment.individual.mapper.HorseMapper;
+import at.ac.tuwien.sepm.assignment.individual.persistence.impl.HorseTrigramIndex;
+import at.ac.tuwien.sepm.assignment.individual.persistence.impl.PedigreeIndex;
+import at.ac.tuwien.sepm.assignment.individual.type.HorseField;
 import at.ac.tuwien.sepm.assignment.individual.type.Sex;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,9 +16,13 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.time.LocalDate;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.tuple;
 
 @ActiveProfiles({"test"})
@@ -25,6 +34,10 @@ public class HorseDaoTest {
   HorseDao horseDao;
   @Autowired
   HorseMapper horseMapper;
+  @Autowired
+  PedigreeIndex pedigreeIndex;
+  @Autowired
+  HorseTrigramIndex trigramIndex;
 
   @Test
   @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
@@ -70,10 +83,11 @@ public class HorseDaoTest {
     }
     try {
       updatedHorse = horseDao.update(horseMapper.entityToDetailDto(horse, null, null, null));
-    } catch (NotFoundException e) {
+    } catch (NotFoundException | ConflictException e) {
       throw new RuntimeException(e);
     }
     assertThat(updatedHorse.getId()).isEqualTo(-1L);
+    assertThat(updatedHorse.getVersion()).isEqualTo(horse.getVersion() + 1);
     assertThat(updatedHorse.getName()).isEqualTo("Wendus");
     assertThat(updatedHorse.getSex()).isEqualTo(Sex.MALE);
     assertThat(updatedHorse.getDescription()).isEqualTo(horse.getDescription());
@@ -108,6 +122,8 @@ public class HorseDaoTest {
             null,
             null,
             null,
+            null,
+            null,
             null
     );
     List<Horse> returnedHorses = horseDao.searchForHorses(params);
@@ -119,5 +135,181 @@ public class HorseDaoTest {
             .contains(tuple(-4L, "SuitableChildForSuitableMotherAndSuitableFather"));
   }
 
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void getFamilyTreeReturnsEveryAncestorOnce() throws NotFoundException {
+    // the test data is inserted by script, not through the DAO
+    pedigreeIndex.reload();
+    List<Horse> horses = horseDao.getFamilyTree(-10L, 4L);
+    assertThat(horses)
+            .extracting(Horse::getId)
+            .containsExactlyInAnyOrder(-10L, -8L, -9L, -6L, -7L, -2L, -3L);
 
+    horses = horseDao.getFamilyTree(-10L, 2L);
+    assertThat(horses)
+            .extracting(Horse::getId)
+            .containsExactlyInAnyOrder(-10L, -8L, -9L);
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void deletingParentRemovesItFromFamilyTreeOfChild() throws NotFoundException {
+    pedigreeIndex.reload();
+    horseDao.delete(-8L);
+    List<Horse> horses = horseDao.getFamilyTree(-10L, 2L);
+    assertThat(horses)
+            .extracting(Horse::getId)
+            .containsExactlyInAnyOrder(-10L, -9L);
+    assertThat(horses.get(0).getMotherId()).isNull();
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void getDetailByIdReturnsOwnerAndParents() throws NotFoundException {
+    HorseDetailDto horse = horseDao.getDetailById(-6, HorseField.DETAIL);
+    assertThat(horse.name()).isEqualTo("HorseGen2F");
+    assertThat(horse.owner()).isNotNull();
+    assertThat(horse.owner().id()).isEqualTo(-1L);
+    assertThat(horse.owner().firstName()).isEqualTo("Owner1For");
+    assertThat(horse.mother()).isNotNull();
+    assertThat(horse.mother().name()).isEqualTo("SuitableMother");
+    assertThat(horse.father()).isNotNull();
+    assertThat(horse.father().name()).isEqualTo("SuitableFather");
+
+    horse = horseDao.getDetailById(-1, HorseField.DETAIL);
+    assertThat(horse.owner()).isNull();
+    assertThat(horse.mother()).isNull();
+    assertThat(horse.father()).isNull();
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void getDetailByIdLoadsOnlyRequestedFields() throws NotFoundException {
+    HorseDetailDto horse = horseDao.getDetailById(-6, EnumSet.of(HorseField.NAME, HorseField.MOTHER));
+    assertThat(horse.id()).isEqualTo(-6L);
+    assertThat(horse.name()).isEqualTo("HorseGen2F");
+    assertThat(horse.mother()).isNotNull();
+    assertThat(horse.mother().name()).isEqualTo("SuitableMother");
+    assertThat(horse.description()).isNull();
+    assertThat(horse.dateOfBirth()).isNull();
+    assertThat(horse.owner()).isNull();
+    assertThat(horse.father()).isNull();
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void searchForSubstringFollowsUpdatedNameAndDescription() throws NotFoundException, ConflictException {
+    HorseSearchDto byDescription = new HorseSearchDto(null, "IPSUM5", null, null, null, null, null, null);
+    assertThat(horseDao.searchForHorses(byDescription))
+            .extracting(Horse::getId)
+            .containsExactly(-8L);
+
+    Horse horse = horseDao.getById(-1);
+    horse.setName("Wendus");
+    horseDao.update(horseMapper.entityToDetailDto(horse, null, null, null));
+
+    HorseSearchDto oldName = new HorseSearchDto("endy", null, null, null, null, null, null, null);
+    HorseSearchDto newName = new HorseSearchDto("endus", null, null, null, null, null, null, null);
+    assertThat(horseDao.searchForHorses(oldName)).isEmpty();
+    assertThat(horseDao.searchForHorses(newName))
+            .extracting(Horse::getId)
+            .containsExactly(-1L);
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(statements = "TRUNCATE TABLE horse_trigram", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void backfillIndexesHorsesStoredBeforeTheIndex() {
+    HorseSearchDto byName = new HorseSearchDto("endy", null, null, null, null, null, null, null);
+    assertThat(horseDao.searchForHorses(byName)).isEmpty();
+
+    trigramIndex.backfill();
+
+    assertThat(horseDao.searchForHorses(byName))
+            .extracting(Horse::getId)
+            .containsExactly(-1L);
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void searchCombinesOnlyGivenFilters() {
+    HorseSearchDto byOwner = new HorseSearchDto(null, null, null, null, "owner1for", null, null, null);
+    assertThat(horseDao.searchForHorses(byOwner))
+            .extracting(Horse::getId)
+            .containsExactlyInAnyOrder(-6L, -10L);
+
+    HorseSearchDto bySexAndBirth = new HorseSearchDto(null, null, LocalDate.of(2019, 1, 1), Sex.MALE, null, null, null, null);
+    assertThat(horseDao.searchForHorses(bySexAndBirth))
+            .extracting(Horse::getId)
+            .containsExactlyInAnyOrder(-3L, -4L);
+
+    HorseSearchDto limited = new HorseSearchDto("Horse", null, null, Sex.FEMALE, null, 2, null, null);
+    assertThat(horseDao.searchForHorses(limited)).hasSize(2);
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void searchReturnsEverythingButTheDescription() throws NotFoundException {
+    Horse stored = horseDao.getById(-10);
+    HorseSearchDto params = new HorseSearchDto("HorseGen4F", null, null, null, null, null, null, null);
+    List<Horse> found = horseDao.searchForHorses(params);
+
+    assertThat(stored.getDescription()).isEqualTo("Lorem ipsum6");
+    assertThat(found).hasSize(1);
+    assertThat(found.get(0))
+            .usingRecursiveComparison()
+            .ignoringFields("description")
+            .isEqualTo(stored);
+    assertThat(found.get(0).getDescription()).isNull();
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void streamHorsesReturnsSameHorsesAsSearch() {
+    HorseSearchDto params = new HorseSearchDto("Sui", null, null, null, null, null, null, null);
+    try (Stream<Horse> horses = horseDao.streamHorses(params, HorseField.LIST)) {
+      assertThat(horses)
+              .extracting(Horse::getId)
+              .containsExactlyInAnyOrder(-2L, -3L, -4L);
+    }
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void getDescendantsReturnsEveryDescendantOnceByGeneration() throws NotFoundException {
+    List<Horse> horses = horseDao.getDescendants(-2L, 2L);
+    assertThat(horses)
+            .extracting(Horse::getId)
+            .containsExactlyInAnyOrder(-2L, -6L, -7L, -8L, -9L);
+    assertThat(horses.get(0).getId()).isEqualTo(-2L);
+    assertThat(horses.subList(1, 3))
+            .extracting(Horse::getId)
+            .containsExactlyInAnyOrder(-6L, -7L);
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void updatingStaleVersionThrowsConflictAndKeepsHorse() throws Exception {
+    Horse horse = horseDao.getById(-1);
+    final var revision = horseDao.getRevisionById(-1);
+    horse.setName("First");
+    horseDao.update(horseMapper.entityToDetailDto(horse, null, null, null));
+
+    horse.setName("Second");
+    assertThatThrownBy(() -> horseDao.update(horseMapper.entityToDetailDto(horse, null, null, null)))
+            .isInstanceOf(ConflictException.class);
+    assertThat(horseDao.getById(-1).getName()).isEqualTo("First");
+    assertThat(horseDao.getRevisionById(-1).version()).isEqualTo(revision.version() + 1);
+  }
 }
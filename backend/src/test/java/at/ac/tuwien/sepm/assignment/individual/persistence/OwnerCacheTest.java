@@ -0,0 +1,67 @@
+package at.ac.tuwien.sepm.assignment.individual.persistence;
+
+import at.ac.tuwien.sepm.assignment.individual.entity.Owner;
+import at.ac.tuwien.sepm.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepm.assignment.individual.persistence.impl.OwnerCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles({"test"})
+// enable "test" spring profile during test execution in order to pick up configuration from application-test.yml
+@SpringBootTest
+public class OwnerCacheTest {
+
+  @Autowired
+  OwnerDao ownerDao;
+  @Autowired
+  OwnerCache ownerCache;
+
+  @BeforeEach
+  public void clearCache() {
+    ownerCache.invalidateAll();
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void getAllByIdServesCachedOwnersAndFetchesOnlyMissingOnes() throws NotFoundException {
+    ownerDao.getById(-1L);
+    OwnerCache.Stats before = ownerCache.stats();
+
+    assertThat(ownerDao.getAllById(List.of(-1L, -2L, -3L)))
+            .extracting(Owner::getId)
+            .containsExactlyInAnyOrder(-1L, -2L, -3L);
+    OwnerCache.Stats after = ownerCache.stats();
+    assertThat(after.hits() - before.hits()).isEqualTo(1);
+    assertThat(after.misses() - before.misses()).isEqualTo(2);
+    assertThat(after.size()).isEqualTo(3);
+
+    assertThat(ownerDao.getById(-3L).getFirstName()).isEqualTo("Owner3For");
+    assertThat(ownerCache.stats().hits() - after.hits()).isEqualTo(1);
+  }
+
+  @Test
+  public void cacheEvictsLeastRecentlyUsedAndExpiredOwners() {
+    OwnerCache cache = new OwnerCache(2, Duration.ofMinutes(5));
+    cache.put(new Owner().setId(1L));
+    cache.put(new Owner().setId(2L));
+    cache.get(1L);
+    cache.put(new Owner().setId(3L));
+    assertThat(cache.get(1L)).isNotNull();
+    assertThat(cache.get(2L)).isNull();
+    assertThat(cache.stats().evictions()).isEqualTo(1);
+
+    OwnerCache expiring = new OwnerCache(2, Duration.ZERO);
+    expiring.put(new Owner().setId(1L));
+    assertThat(expiring.get(1L)).isNull();
+  }
+}
@@ -0,0 +1,73 @@
+package at.ac.tuwien.sepm.assignment.individual.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles({"test"})
+// enable "test" spring profile during test execution in order to pick up configuration from application-test.yml
+@SpringBootTest
+public class PedigreeGeneratorTest {
+  private static final PedigreeGenerator.Settings SETTINGS =
+          new PedigreeGenerator.Settings(20, 500, 5, 7L, 0.5, 3.0, 64);
+
+  @Autowired
+  DataSource dataSource;
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Test
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void generatedHorsesSatisfyParentConstraints() throws Exception {
+    new PedigreeGenerator(dataSource).generate(SETTINGS);
+
+    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM owner", Integer.class)).isEqualTo(20);
+    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM horse", Integer.class)).isEqualTo(500);
+    assertThat(jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM horse WHERE mother_id IS NOT NULL AND father_id IS NOT NULL", Integer.class))
+            .isEqualTo(400);
+    assertThat(jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM horse c JOIN horse m ON m.id = c.mother_id JOIN horse f ON f.id = c.father_id "
+                    + "WHERE m.sex <> 'FEMALE' OR f.sex <> 'MALE' "
+                    + "OR m.date_of_birth >= c.date_of_birth OR f.date_of_birth >= c.date_of_birth", Integer.class))
+            .isZero();
+    // the generated IDs are followed by generated keys of the data store
+    jdbcTemplate.update("INSERT INTO horse (name, date_of_birth, sex) VALUES ('Next', DATE '2020-01-01', 'MALE')");
+    assertThat(jdbcTemplate.queryForObject("SELECT id FROM horse WHERE name = 'Next'", Long.class)).isEqualTo(501L);
+  }
+
+  @Test
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void sameSeedGeneratesSameStallionSkew() throws Exception {
+    new PedigreeGenerator(dataSource).generate(SETTINGS);
+    final List<Map<String, Object>> first = foalsPerStallion();
+
+    jdbcTemplate.update("DELETE FROM horse");
+    jdbcTemplate.update("DELETE FROM owner");
+    new PedigreeGenerator(dataSource).generate(SETTINGS);
+    List<Map<String, Object>> second = foalsPerStallion();
+
+    assertThat(second).hasSameSizeAs(first);
+    for (int i = 0; i < first.size(); i++) {
+      assertThat(second.get(i).get("foals")).isEqualTo(first.get(i).get("foals"));
+    }
+    long mostFoals = (Long) first.get(0).get("foals");
+    assertThat(mostFoals).isGreaterThan(400L / first.size() * 3);
+  }
+
+  private List<Map<String, Object>> foalsPerStallion() {
+    return jdbcTemplate.queryForList(
+            "SELECT father_id, COUNT(*) AS foals FROM horse WHERE father_id IS NOT NULL GROUP BY father_id ORDER BY foals DESC, father_id");
+  }
+}
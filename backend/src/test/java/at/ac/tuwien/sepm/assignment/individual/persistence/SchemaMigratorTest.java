@@ -0,0 +1,74 @@
+package at.ac.tuwien.sepm.assignment.individual.persistence;
+
+import at.ac.tuwien.sepm.assignment.individual.exception.FatalException;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SchemaMigratorTest {
+  private static int databases;
+
+  private JdbcDataSource dataSource;
+  private JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  public void createDatabase() {
+    dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:migrations" + ++databases + ";DB_CLOSE_DELAY=-1");
+    jdbcTemplate = new JdbcTemplate(dataSource);
+  }
+
+  @Test
+  public void migrationsAreAppliedOnceInOrder() {
+    var migrator = new SchemaMigrator(dataSource, SchemaMigrator.DEFAULT_LOCATION);
+    var versions = migrator.findMigrations().stream().map(SchemaMigrator.Migration::version).toList();
+
+    assertThat(versions).startsWith(1, 2, 3).isSorted();
+    assertThat(migrator.migrate()).isEqualTo(versions.size());
+    assertThat(migrator.migrate()).isZero();
+    assertThat(jdbcTemplate.queryForList("SELECT version FROM schema_migration ORDER BY applied_at, version", Integer.class))
+            .isEqualTo(versions);
+    assertThat(jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM information_schema.indexes WHERE index_name = 'HORSE_MOTHER_ID'", Integer.class))
+            .isPositive();
+  }
+
+  @Test
+  public void schemaCreatedBeforeMigrationsIsTakenOver() {
+    jdbcTemplate.execute("CREATE TABLE owner (id BIGINT AUTO_INCREMENT PRIMARY KEY, first_name VARCHAR(255) NOT NULL,"
+            + " last_name VARCHAR(255) NOT NULL, email VARCHAR(255))");
+    jdbcTemplate.execute("INSERT INTO owner (first_name, last_name) VALUES ('Wendy', 'Owner')");
+
+    var migrator = new SchemaMigrator(dataSource, SchemaMigrator.DEFAULT_LOCATION);
+    assertThat(migrator.migrate()).isEqualTo(migrator.findMigrations().size());
+    assertThat(jdbcTemplate.queryForList("SELECT first_name FROM owner", String.class)).isEqualTo(List.of("Wendy"));
+  }
+
+  @Test
+  public void changedMigrationIsRejected() {
+    var migrator = new SchemaMigrator(dataSource, SchemaMigrator.DEFAULT_LOCATION);
+    migrator.migrate();
+    jdbcTemplate.update("UPDATE schema_migration SET checksum = checksum + 1 WHERE version = 2");
+
+    assertThatThrownBy(migrator::migrate)
+            .isInstanceOf(FatalException.class)
+            .hasMessageContaining("V2");
+  }
+
+  @Test
+  public void unknownAppliedMigrationIsRejected() {
+    var migrator = new SchemaMigrator(dataSource, SchemaMigrator.DEFAULT_LOCATION);
+    migrator.migrate();
+    jdbcTemplate.update("INSERT INTO schema_migration VALUES (99, 'from the future', 0, CURRENT_TIMESTAMP, 0)");
+
+    assertThatThrownBy(migrator::migrate)
+            .isInstanceOf(FatalException.class)
+            .hasMessageContaining("99");
+  }
+}
@@ -2,30 +2,47 @@ package at.ac.tuwien.sepm.assignment.individual.rest;
 
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseCreateDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseDetailDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseFamilyTreeDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepm.assignment.individual.persistence.impl.PedigreeIndex;
 import at.ac.tuwien.sepm.assignment.individual.type.Sex;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
+import static org.hamcrest.Matchers.hasItem;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ActiveProfiles({"test"})
@@ -38,6 +55,8 @@ public class HorseEndpointTest {
   @Autowired
   ObjectMapper objectMapper;
   @Autowired
+  PedigreeIndex pedigreeIndex;
+  @Autowired
   private WebApplicationContext webAppContext;
   private MockMvc mockMvc;
 
@@ -76,6 +95,33 @@ public class HorseEndpointTest {
             .contains(tuple(-1L, "Wendy"));
   }
 
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void gettingHorsesAsNdjsonReturnsOneHorsePerLine() throws Exception {
+    MvcResult result = mockMvc
+            .perform(MockMvcRequestBuilders
+                    .get("/horses")
+                    .queryParam("name", "Sui")
+                    .accept(HorseEndpoint.NDJSON_VALUE)
+            ).andExpect(MockMvcResultMatchers.request().asyncStarted())
+            .andReturn();
+    String body = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.content().contentType(HorseEndpoint.NDJSON_VALUE))
+            .andReturn().getResponse().getContentAsString();
+
+    String[] lines = body.split("\n");
+    assertThat(lines).hasSize(3);
+    List<HorseListDto> horses = new ArrayList<>();
+    for (String line : lines) {
+      horses.add(objectMapper.readValue(line, HorseListDto.class));
+    }
+    assertThat(horses)
+            .extracting(HorseListDto::id)
+            .containsExactlyInAnyOrder(-2L, -3L, -4L);
+  }
+
   @Test
   @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
   @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
@@ -134,4 +180,447 @@ public class HorseEndpointTest {
             .andExpect(status().isBadRequest())
             .andExpect(MockMvcResultMatchers.jsonPath("$.id").doesNotExist());
   }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void createHorseBatch() throws Exception {
+    List<HorseCreateDto> horses = List.of(
+            new HorseCreateDto("TestHorse1", null, LocalDate.of(2020, 1, 1), Sex.MALE, null, null, null),
+            new HorseCreateDto("", null, LocalDate.of(2020, 1, 1), Sex.MALE, null, null, null)
+    );
+    mockMvc.perform(MockMvcRequestBuilders
+                    .post("/horses/batch")
+                    .content(asJsonString(horses))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].index").value(0))
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].horse.name").value("TestHorse1"))
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].errors").isEmpty())
+            .andExpect(MockMvcResultMatchers.jsonPath("$[1].index").value(1))
+            .andExpect(MockMvcResultMatchers.jsonPath("$[1].horse").doesNotExist())
+            .andExpect(MockMvcResultMatchers.jsonPath("$[1].errors[0]").value("Name of Horse can't be empty"));
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void gettingFirstPageOfHorsesReturnsNextCursor() throws Exception {
+    mockMvc
+            .perform(MockMvcRequestBuilders
+                    .get("/horses")
+                    .param("pageSize", "3")
+                    .accept(MediaType.APPLICATION_JSON)
+            ).andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.header().exists(HorseEndpoint.NEXT_CURSOR_HEADER))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(3));
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void gettingSharedFamilyTreeReferencesRepeatedAncestorsById() throws Exception {
+    pedigreeIndex.reload();
+    mockMvc
+            .perform(MockMvcRequestBuilders
+                    .get("/horses/-10/familytree")
+                    .param("generations", "4")
+                    .param("format", "shared")
+                    .accept(MediaType.APPLICATION_JSON)
+            ).andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(-10))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.mother.mother.id").value(-6))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.mother.mother.name").value("HorseGen2F"))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.father.mother").value(-6))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.father.father").value(-7));
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void gettingFlatFamilyTreeReturnsEveryAncestorOnce() throws Exception {
+    pedigreeIndex.reload();
+    mockMvc
+            .perform(MockMvcRequestBuilders
+                    .get("/horses/-10/familytree")
+                    .param("generations", "4")
+                    .param("format", "flat")
+                    .accept(MediaType.APPLICATION_JSON)
+            ).andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.columns[3]").value("motherIdx"))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.horses.length()").value(7))
+            // id, name, dateOfBirth, motherIdx, fatherIdx, depth
+            .andExpect(MockMvcResultMatchers.jsonPath("$.horses[0][0]").value(-10))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.horses[0][3]").value(1))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.horses[0][4]").value(2))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.horses[0][5]").value(0))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.horses[1][0]").value(-8))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.horses[2][0]").value(-9))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.horses[2][3]").value(3))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.horses[3][0]").value(-6))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.horses[3][1]").value("HorseGen2F"))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.horses[3][2]").value("2019-08-09"))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.horses[3][5]").value(2))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.horses[6][3]").doesNotExist());
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void gettingDescendantsReturnsCountsPerGeneration() throws Exception {
+    mockMvc
+            .perform(MockMvcRequestBuilders
+                    .get("/horses/-3/descendants")
+                    .param("generations", "5")
+                    .accept(MediaType.APPLICATION_JSON)
+            ).andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.generationCounts.length()").value(3))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.generationCounts[0]").value(2))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.generationCounts[1]").value(2))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.generationCounts[2]").value(1))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.horses.length()").value(6))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.horses[0][0]").value(-3))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.horses[1][4]").value(0))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.horses[5][0]").value(-10))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.horses[5][5]").value(3));
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void gettingDescendantsOfNonexistentHorseReturns404() throws Exception {
+    mockMvc
+            .perform(MockMvcRequestBuilders
+                    .get("/horses/-99/descendants")
+                    .param("generations", "2")
+                    .accept(MediaType.APPLICATION_JSON)
+            ).andExpect(status().isNotFound());
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void exportingHorsesAsGzippedNdjsonJoinsOwners() throws Exception {
+    MvcResult result = mockMvc
+            .perform(MockMvcRequestBuilders
+                    .get("/horses/export")
+                    .param("format", "ndjson")
+                    .param("gzip", "true")
+            ).andExpect(MockMvcResultMatchers.request().asyncStarted())
+            .andReturn();
+    byte[] body = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.content().contentType(ExportResponses.GZIP_CONTENT_TYPE))
+            .andReturn().getResponse().getContentAsByteArray();
+
+    List<String> lines;
+    try (var in = new BufferedReader(new InputStreamReader(
+            new GZIPInputStream(new ByteArrayInputStream(body)), StandardCharsets.UTF_8))) {
+      lines = in.lines().toList();
+    }
+    assertThat(lines).hasSize(10);
+    JsonNode first = objectMapper.readTree(lines.get(0));
+    assertThat(first.get("id").asLong()).isEqualTo(-10L);
+    assertThat(first.get("date_of_birth").asText()).isEqualTo("2021-12-24");
+    assertThat(first.get("mother_id").asLong()).isEqualTo(-8L);
+    assertThat(first.get("owner_first_name").asText()).isEqualTo("Owner1For");
+    assertThat(first.get("owner_email").asText()).isEqualTo("someone@example.cd");
+    JsonNode withoutOwner = objectMapper.readTree(lines.get(9));
+    assertThat(withoutOwner.get("id").asLong()).isEqualTo(-1L);
+    assertThat(withoutOwner.get("owner_id").isNull()).isTrue();
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void importingCsvCreatesParentsReferencedByKeyBeforeTheirChildren() throws Exception {
+    String csv = """
+            key,name,description,date_of_birth,sex,owner_id,mother_id,mother_key,father_id,father_key\r
+            foal,ImportFoal,"born ""late"", in winter",2022-01-01,MALE,-1,,mare,-3,\r
+            mare,ImportMare,,2015-05-05,FEMALE,,,,,\r
+            broken,,,2016-01-01,MALE,,,,,\r
+            orphan,ImportOrphan,,2022-01-01,FEMALE,,,broken,,\r
+            """;
+    mockMvc.perform(MockMvcRequestBuilders
+                    .post("/horses/import")
+                    .content(csv)
+                    .contentType("text/csv")
+                    .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.rowsRead").value(4))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.imported").value(2))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.failed").value(2))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].line").value(4))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].errors[0]").value("Name of Horse can't be empty"))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.errors[1].key").value("orphan"))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.errors[1].errors[0]")
+                    .value("Parent 'broken' referenced by Horse was not imported"));
+
+    byte[] found = mockMvc.perform(MockMvcRequestBuilders
+                    .get("/horses")
+                    .param("name", "ImportFoal")
+                    .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsByteArray();
+    long foalId = objectMapper.readTree(found).get(0).get("id").asLong();
+    mockMvc.perform(MockMvcRequestBuilders
+                    .get("/horses/{id}", foalId)
+                    .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.description").value("born \"late\", in winter"))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.mother.name").value("ImportMare"))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.father.id").value(-3))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.owner.id").value(-1));
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void importingCsvWithByteOrderMarkReportsLinesOfRowsAfterEmptyLines() throws Exception {
+    String csv = "\uFEFF" + """
+            name,date_of_birth,sex
+            ImportBom,2020-01-01,FEMALE
+            
+            
+            ImportLate,yesterday,MALE
+            """;
+    mockMvc.perform(MockMvcRequestBuilders
+                    .post("/horses/import")
+                    .content(csv.getBytes(StandardCharsets.UTF_8))
+                    .contentType("text/csv")
+                    .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.rowsRead").value(2))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.imported").value(1))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].line").value(5))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].errors[0]").value("Date of birth 'yesterday' is invalid"));
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void importingNdjsonReportsRowsThatCanNotBeRead() throws Exception {
+    String ndjson = """
+            {"name":"ImportNdjson","date_of_birth":"2022-01-01","sex":"female","mother_id":-2,"father_id":-3}
+
+            {"name":"ImportTooEarly","date_of_birth":"2000-01-01","sex":"MALE","mother_id":-2}
+            not json
+            {"name":"ImportBadDate","date_of_birth":"yesterday","sex":"MALE"}
+            """;
+    mockMvc.perform(MockMvcRequestBuilders
+                    .post("/horses/import")
+                    .content(ndjson)
+                    .contentType(HorseEndpoint.NDJSON_VALUE)
+                    .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.rowsRead").value(4))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.imported").value(1))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.failed").value(3))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].line").value(3))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.errors[1].line").value(4))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.errors[1].errors[0]").value("Row is not valid JSON"))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.errors[2].errors[0]").value("Date of birth 'yesterday' is invalid"));
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void gettingUnchangedHorseWithETagReturns304() throws Exception {
+    String etag = mockMvc.perform(MockMvcRequestBuilders.get("/horses/-10").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.ETAG))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/horses/-10").accept(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified())
+            .andExpect(MockMvcResultMatchers.content().string(""));
+
+    // renaming a parent changes the detail of the child
+    updateName(-8, "Renamed parent", null).andExpect(status().isOk());
+    mockMvc.perform(MockMvcRequestBuilders.get("/horses/-10").accept(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.mother.name").value("Renamed parent"));
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void gettingUnchangedFamilyTreeWithETagReturns304() throws Exception {
+    pedigreeIndex.reload();
+    String etag = mockMvc.perform(MockMvcRequestBuilders.get("/horses/-10/familytree").param("generations", "3")
+                    .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    assertThat(etag).isNotBlank();
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/horses/-10/familytree").param("generations", "3")
+                    .accept(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified());
+
+    updateName(-9, "Renamed ancestor", null).andExpect(status().isOk());
+    mockMvc.perform(MockMvcRequestBuilders.get("/horses/-10/familytree").param("generations", "3")
+                    .accept(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk());
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void updatingHorseWithStaleETagReturns412() throws Exception {
+    String etag = mockMvc.perform(MockMvcRequestBuilders.get("/horses/-1").accept(MediaType.APPLICATION_JSON))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+    String newEtag = updateName(-1, "First", etag)
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.name").value("First"))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    assertThat(newEtag).isNotEqualTo(etag);
+
+    updateName(-1, "Second", etag).andExpect(status().isPreconditionFailed());
+    mockMvc.perform(MockMvcRequestBuilders.get("/horses/-1").accept(MediaType.APPLICATION_JSON))
+            .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, newEtag))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.name").value("First"));
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void updatingHorseWithStaleVersionReturns409() throws Exception {
+    ObjectNode horse = (ObjectNode) objectMapper.readTree(mockMvc
+            .perform(MockMvcRequestBuilders.get("/horses/-1").accept(MediaType.APPLICATION_JSON))
+            .andReturn().getResponse().getContentAsByteArray());
+    updateName(-1, "First", null).andExpect(status().isOk());
+
+    horse.put("name", "Second");
+    mockMvc.perform(MockMvcRequestBuilders.put("/horses/-1")
+                    .content(objectMapper.writeValueAsBytes(horse))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isConflict());
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void gettingHorsesWithFieldsReturnsOnlyThoseFields() throws Exception {
+    mockMvc.perform(MockMvcRequestBuilders.get("/horses").queryParam("fields", "name")
+                    .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(10))
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").exists())
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].name").exists())
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].sex").doesNotExist())
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].owner").doesNotExist());
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/horses").queryParam("fields", "nickname")
+                    .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void gettingHorsesReturnsDescriptionOnlyIfRequested() throws Exception {
+    mockMvc.perform(MockMvcRequestBuilders.get("/horses").queryParam("name", "Wendy")
+                    .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].name").value("Wendy"))
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].description").doesNotExist());
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/horses").queryParam("name", "Wendy")
+                    .queryParam("fields", "name,description")
+                    .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].name").value("Wendy"))
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].description").value("The famous one!"))
+            .andExpect(MockMvcResultMatchers.jsonPath("$[0].sex").doesNotExist());
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void gettingHorseWithFieldsHasItsOwnETag() throws Exception {
+    String etag = mockMvc.perform(MockMvcRequestBuilders.get("/horses/-10").accept(MediaType.APPLICATION_JSON))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    String sparseEtag = mockMvc.perform(MockMvcRequestBuilders.get("/horses/-10").queryParam("fields", "name,mother")
+                    .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(-10))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.name").value("HorseGen4F"))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.mother.id").value(-8))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.description").doesNotExist())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.owner").doesNotExist())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    assertThat(sparseEtag).isNotBlank().isNotEqualTo(etag);
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/horses/-10").queryParam("fields", "name,mother")
+                    .accept(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.IF_NONE_MATCH, sparseEtag))
+            .andExpect(status().isNotModified());
+    mockMvc.perform(MockMvcRequestBuilders.get("/horses/-10").accept(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.IF_NONE_MATCH, sparseEtag))
+            .andExpect(status().isOk());
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void gettingHorsesAsCborReturnsSameHorsesAsJson() throws Exception {
+    byte[] json = mockMvc.perform(MockMvcRequestBuilders.get("/horses").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsByteArray();
+    byte[] cbor = mockMvc.perform(MockMvcRequestBuilders.get("/horses").accept(MediaType.APPLICATION_CBOR))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_CBOR))
+            .andExpect(MockMvcResultMatchers.header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+            .andReturn().getResponse().getContentAsByteArray();
+
+    List<HorseListDto> horses = Jackson2ObjectMapperBuilder.cbor().build()
+            .readValue(cbor, new TypeReference<List<HorseListDto>>() {
+            });
+    assertThat(horses)
+            .hasSize(10)
+            .isEqualTo(objectMapper.readValue(json, new TypeReference<List<HorseListDto>>() {
+            }));
+    assertThat(cbor.length).isLessThan(json.length);
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void gettingFamilyTreeAsCbor() throws Exception {
+    pedigreeIndex.reload();
+    byte[] cbor = mockMvc.perform(MockMvcRequestBuilders.get("/horses/-10/familytree").param("generations", "3")
+                    .accept(MediaType.APPLICATION_CBOR))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_CBOR))
+            .andReturn().getResponse().getContentAsByteArray();
+
+    HorseFamilyTreeDto tree = Jackson2ObjectMapperBuilder.cbor().build().readValue(cbor, HorseFamilyTreeDto.class);
+    assertThat(tree.name()).isEqualTo("HorseGen4F");
+    assertThat(tree.dateOfBirth()).isEqualTo(LocalDate.of(2021, 12, 24));
+    assertThat(tree.mother().id()).isEqualTo(-8L);
+    assertThat(tree.father().id()).isEqualTo(-9L);
+  }
+
+  private ResultActions updateName(long id, String name, String ifMatch) throws Exception {
+    ObjectNode horse = (ObjectNode) objectMapper.readTree(mockMvc
+            .perform(MockMvcRequestBuilders.get("/horses/{id}", id).accept(MediaType.APPLICATION_JSON))
+            .andReturn().getResponse().getContentAsByteArray());
+    horse.put("name", name);
+    horse.remove("version");
+    MockHttpServletRequestBuilder request = MockMvcRequestBuilders.put("/horses/{id}", id)
+            .content(objectMapper.writeValueAsBytes(horse))
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+    if (ifMatch != null) {
+      request.header(HttpHeaders.IF_MATCH, ifMatch);
+    }
+    return mockMvc.perform(request);
+  }
 }
@@ -0,0 +1,64 @@
+package at.ac.tuwien.sepm.assignment.individual.rest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles({"test"})
+// enable "test" spring profile during test execution in order to pick up configuration from application-test.yml
+@SpringBootTest
+@EnableWebMvc
+@WebAppConfiguration
+public class MetricsEndpointTest {
+
+  @Autowired
+  private WebApplicationContext webAppContext;
+  @Autowired
+  private FilterRegistrationBean<?> logFilter;
+  private MockMvc mockMvc;
+
+  @BeforeEach
+  public void setup() {
+    this.mockMvc = MockMvcBuilders.webAppContextSetup(webAppContext)
+            .addFilters(logFilter.getFilter())
+            .build();
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void scrapingMetricsReportsLatencyByRouteAndDaoMethod() throws Exception {
+    mockMvc.perform(MockMvcRequestBuilders.get("/horses/{id}/familytree", -10).param("generations", "3")
+            .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+    mockMvc.perform(MockMvcRequestBuilders.get("/horses/{id}", -9999)
+            .accept(MediaType.APPLICATION_JSON)).andExpect(status().isNotFound());
+    mockMvc.perform(MockMvcRequestBuilders.get("/no/such/path")).andExpect(status().isNotFound());
+
+    String metrics = mockMvc.perform(MockMvcRequestBuilders.get("/metrics"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+
+    assertThat(metrics)
+            .contains("# TYPE http_server_requests_seconds summary")
+            .contains("http_server_requests_seconds{method=\"GET\",route=\"/horses/{id}/familytree\",status=\"200\",quantile=\"0.99\"}")
+            .contains("http_server_requests_seconds_count{method=\"GET\",route=\"/horses/{id}\",status=\"404\"}")
+            .contains("http_server_requests_seconds_count{method=\"GET\",route=\"UNMATCHED\",status=\"404\"}")
+            .contains("dao_calls_seconds_count{dao=\"HorseJdbcDao\",method=\"getDetailById\"}")
+            .contains("dao_call_errors_total{dao=\"HorseJdbcDao\",method=\"getDetailById\"}")
+            .contains("owner_cache_hits_total ");
+  }
+}
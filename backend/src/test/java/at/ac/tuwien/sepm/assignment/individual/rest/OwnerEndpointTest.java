@@ -1,17 +1,22 @@
 package at.ac.tuwien.sepm.assignment.individual.rest;
 
 import at.ac.tuwien.sepm.assignment.individual.dto.OwnerDto;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
@@ -20,6 +25,7 @@ import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
+import static org.hamcrest.Matchers.hasItem;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ActiveProfiles({"test"})
@@ -58,4 +64,49 @@ public class OwnerEndpointTest {
             .extracting(OwnerDto::id, OwnerDto::firstName, OwnerDto::lastName, OwnerDto::email)
             .contains(tuple(-1L, "Owner1For", "TestingPurpose", "someone@example.cd"));
   }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void exportingOwnersAsCsvWritesHeaderAndOneLinePerOwner() throws Exception {
+    MvcResult result = mockMvc
+            .perform(MockMvcRequestBuilders
+                    .get("/owners/export")
+            ).andExpect(MockMvcResultMatchers.request().asyncStarted())
+            .andReturn();
+    String body = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.header().string("Content-Disposition", "attachment; filename=\"owners.csv\""))
+            .andReturn().getResponse().getContentAsString();
+
+    String[] lines = body.split("\r\n");
+    assertThat(lines).hasSize(11);
+    assertThat(lines[0]).isEqualTo("id,first_name,last_name,email");
+    assertThat(lines[1]).isEqualTo("-10,Owner10For,TestingPurpose,owner@owner.own");
+    assertThat(lines[9]).isEqualTo("-2,Owner2For,TestingPurpose,");
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void gettingAllOwnersAsSmile() throws Exception {
+    MediaType smile = new MediaType("application", "x-jackson-smile");
+    byte[] body = mockMvc
+            .perform(MockMvcRequestBuilders
+                    .get("/owners")
+                    .accept(smile)
+            ).andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.content().contentType(smile))
+            .andExpect(MockMvcResultMatchers.header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+            .andReturn().getResponse().getContentAsByteArray();
+
+    List<OwnerDto> ownerResult = Jackson2ObjectMapperBuilder.smile().build()
+            .readValue(body, new TypeReference<List<OwnerDto>>() {
+            });
+
+    assertThat(ownerResult.size()).isEqualTo(10);
+    assertThat(ownerResult)
+            .extracting(OwnerDto::id, OwnerDto::firstName, OwnerDto::lastName, OwnerDto::email)
+            .contains(tuple(-1L, "Owner1For", "TestingPurpose", "someone@example.cd"));
+  }
 }
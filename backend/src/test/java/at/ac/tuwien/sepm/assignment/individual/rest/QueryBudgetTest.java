@@ -0,0 +1,92 @@
+package at.ac.tuwien.sepm.assignment.individual.rest;
+
+import at.ac.tuwien.sepm.assignment.individual.config.LogFilter;
+import at.ac.tuwien.sepm.assignment.individual.persistence.impl.PedigreeIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import static at.ac.tuwien.sepm.assignment.individual.rest.QueryCountMatchers.maxQueries;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles({"test"})
+// enable "test" spring profile during test execution in order to pick up configuration from application-test.yml
+@SpringBootTest
+@EnableWebMvc
+@WebAppConfiguration
+@Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+public class QueryBudgetTest {
+
+  @Autowired
+  private WebApplicationContext webAppContext;
+  @Autowired
+  private FilterRegistrationBean<?> logFilter;
+  @Autowired
+  private PedigreeIndex pedigreeIndex;
+  private MockMvc mockMvc;
+
+  @BeforeEach
+  public void setup() {
+    this.mockMvc = MockMvcBuilders.webAppContextSetup(webAppContext)
+            .addFilters(logFilter.getFilter())
+            .build();
+  }
+
+  @Test
+  public void gettingHorseDetailNeedsOneQuery() throws Exception {
+    mockMvc.perform(MockMvcRequestBuilders.get("/horses/{id}", -10).accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().string(LogFilter.QUERY_COUNT_HEADER, "1"))
+            .andExpect(header().string(LogFilter.QUERY_ROWS_HEADER, "1"))
+            .andExpect(header().exists(LogFilter.QUERY_TIME_HEADER))
+            .andExpect(maxQueries(1));
+  }
+
+  @Test
+  public void searchingHorsesResolvesOwnersInBulk() throws Exception {
+    mockMvc.perform(MockMvcRequestBuilders.get("/horses").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(maxQueries(2));
+  }
+
+  @Test
+  public void searchingHorsesWithoutOwnerDoesNotQueryOwners() throws Exception {
+    mockMvc.perform(MockMvcRequestBuilders.get("/horses").param("fields", "name,sex")
+                    .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(maxQueries(1));
+  }
+
+  @Test
+  public void gettingFamilyTreeDoesNotQueryPerAncestor() throws Exception {
+    // the test data is inserted behind the back of the DAO
+    pedigreeIndex.reload();
+    mockMvc.perform(MockMvcRequestBuilders.get("/horses/{id}/familytree", -10).param("generations", "5")
+                    .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(maxQueries(2));
+  }
+
+  @Test
+  public void requestIdIsReturned() throws Exception {
+    var response = mockMvc.perform(MockMvcRequestBuilders.get("/horses/{id}", -9999).accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isNotFound())
+            .andExpect(maxQueries(1))
+            .andReturn().getResponse();
+    assertThat(response.getHeader(LogFilter.REQUEST_ID_HEADER)).isNotBlank();
+  }
+}
@@ -0,0 +1,35 @@
+package at.ac.tuwien.sepm.assignment.individual.rest;
+
+import at.ac.tuwien.sepm.assignment.individual.config.LogFilter;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Matchers for the number of JDBC statements executed to handle a request,
+ * as reported by the {@link LogFilter}.
+ * The filter must be added to the {@link org.springframework.test.web.servlet.MockMvc} under test.
+ */
+public final class QueryCountMatchers {
+  private QueryCountMatchers() {
+  }
+
+  /**
+   * Assert that the request executed at most {@code max} JDBC statements.
+   *
+   * @param max the query budget of the request
+   * @return the matcher
+   */
+  public static ResultMatcher maxQueries(int max) {
+    return result -> {
+      var header = result.getResponse().getHeader(LogFilter.QUERY_COUNT_HEADER);
+      assertThat(header)
+              .as("%s header, is the LogFilter added to MockMvc?", LogFilter.QUERY_COUNT_HEADER)
+              .isNotNull();
+      assertThat(Integer.parseInt(header))
+              .as("JDBC statements executed for %s %s",
+                      result.getRequest().getMethod(), result.getRequest().getRequestURI())
+              .isLessThanOrEqualTo(max);
+    };
+  }
+}
@@ -1,21 +1,32 @@
 package at.ac.tuwien.sepm.assignment.individual.service;
 
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseBatchResultDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseCreateDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseDetailDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseFamilyTreeDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorsePageDto;
 import at.ac.tuwien.sepm.assignment.individual.dto.HorseParentDto;
+import at.ac.tuwien.sepm.assignment.individual.dto.HorseSearchDto;
 import at.ac.tuwien.sepm.assignment.individual.exception.ConflictException;
 import at.ac.tuwien.sepm.assignment.individual.exception.ErrorListException;
 import at.ac.tuwien.sepm.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepm.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepm.assignment.individual.persistence.impl.PedigreeIndex;
+import at.ac.tuwien.sepm.assignment.individual.service.impl.FamilyTreeCache;
+import at.ac.tuwien.sepm.assignment.individual.type.HorseField;
 import at.ac.tuwien.sepm.assignment.individual.type.Sex;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -28,6 +39,12 @@ public class HorseServiceTest {
 
   @Autowired
   HorseService horseService;
+  @Autowired
+  PedigreeIndex pedigreeIndex;
+  @Autowired
+  FamilyTreeCache familyTreeCache;
+  @Autowired
+  PlatformTransactionManager transactionManager;
 
   @Test
   @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
@@ -139,7 +156,8 @@ public class HorseServiceTest {
             tempFather.name(),
             tempFather.description(),
             tempFather.dateOfBirth(),
-            tempFather.sex()
+            tempFather.sex(),
+            tempFather.version()
     );
 
     HorseParentDto mother = new HorseParentDto(
@@ -147,7 +165,8 @@ public class HorseServiceTest {
             tempMother.name(),
             tempMother.description(),
             tempMother.dateOfBirth(),
-            tempMother.sex()
+            tempMother.sex(),
+            tempMother.version()
     );
 
 
@@ -159,7 +178,8 @@ public class HorseServiceTest {
             oldChild.sex(),
             null,
             mother,
-            father
+            father,
+            oldChild.version()
     );
     exceptionThrown = false;
     HorseDetailDto returnedChild = null;
@@ -175,5 +195,181 @@ public class HorseServiceTest {
     assertThat(returnedChild.fatherId()).isEqualTo(father.id());
 
   }
-}
 
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void createBatchCreatesValidHorsesAndReportsInvalidOnes() {
+    HorseParentDto mother = new HorseParentDto(-2L, null, null, null, null, null);
+    HorseParentDto missingFather = new HorseParentDto(-999L, null, null, null, null, null);
+    List<HorseCreateDto> horses = List.of(
+            new HorseCreateDto("Foal1", null, LocalDate.of(2020, 1, 1), Sex.MALE, null, mother, null),
+            new HorseCreateDto("Foal2", null, LocalDate.of(2100, 1, 1), Sex.MALE, null, null, null),
+            new HorseCreateDto("Foal3", null, LocalDate.of(2020, 1, 1), Sex.FEMALE, null, null, missingFather),
+            new HorseCreateDto("Foal4", "desc", LocalDate.of(2021, 1, 1), Sex.FEMALE, null, mother, null)
+    );
+
+    List<HorseBatchResultDto> results = horseService.createBatch(horses);
+
+    assertThat(results)
+            .extracting(HorseBatchResultDto::index)
+            .containsExactly(0, 1, 2, 3);
+    assertThat(results.get(0).errors()).isEmpty();
+    assertThat(results.get(0).horse().id()).isNotNull();
+    assertThat(results.get(0).horse().mother().name()).isEqualTo("SuitableMother");
+    assertThat(results.get(1).horse()).isNull();
+    assertThat(results.get(1).errors()).containsExactly("Horse Date of birth can't be in the future");
+    assertThat(results.get(2).horse()).isNull();
+    assertThat(results.get(2).errors()).containsExactly("Father -999 referenced by Horse not found");
+    assertThat(results.get(3).errors()).isEmpty();
+    assertThat(results.get(3).horse().name()).isEqualTo("Foal4");
+    assertThat(results.get(3).horse().id()).isNotEqualTo(results.get(0).horse().id());
+    assertThat(horseService.allHorses().toList()).hasSize(12);
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void searchForHorsePagePagesThroughAllHorsesInOrder() throws ValidationException {
+    List<HorseListDto> horses = new ArrayList<>();
+    List<Integer> pageSizes = new ArrayList<>();
+    String cursor = null;
+    do {
+      HorsePageDto page = horseService.searchForHorsePage(
+              new HorseSearchDto(null, null, null, null, null, null, 4, cursor), HorseField.LIST);
+      horses.addAll(page.horses());
+      pageSizes.add(page.horses().size());
+      cursor = page.next();
+    } while (cursor != null);
+
+    assertThat(pageSizes).containsExactly(4, 4, 2);
+    assertThat(horses)
+            .hasSize(10)
+            .isSortedAccordingTo(Comparator.comparing(HorseListDto::name).thenComparing(HorseListDto::id));
+  }
+
+  @Test
+  public void searchForHorsePageWithMalformedCursorThrows() {
+    boolean validationErrorThrown = false;
+    try {
+      horseService.searchForHorsePage(
+              new HorseSearchDto(null, null, null, null, null, null, 0, "not a cursor"), HorseField.LIST);
+    } catch (ValidationException e) {
+      assertThat(e.errors()).containsExactly("Page size must be between 1 and 1000", "Cursor is malformed");
+      validationErrorThrown = true;
+    }
+    assertThat(validationErrorThrown).isTrue();
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void getFamilyTreeSharesNodesOfCommonAncestors() throws NotFoundException {
+    // the test data is inserted by script, not through the DAO
+    pedigreeIndex.reload();
+    HorseFamilyTreeDto tree = horseService.getFamilyTree(-10L, 4L);
+    assertThat(tree.id()).isEqualTo(-10L);
+    assertThat(tree.mother().id()).isEqualTo(-8L);
+    assertThat(tree.father().id()).isEqualTo(-9L);
+    // both parents of HorseGen4F have the same parents
+    assertThat(tree.mother().mother()).isSameAs(tree.father().mother());
+    assertThat(tree.mother().father()).isSameAs(tree.father().father());
+    assertThat(tree.mother().mother().id()).isEqualTo(-6L);
+    assertThat(tree.mother().mother().mother().id()).isEqualTo(-2L);
+    assertThat(tree.mother().mother().mother().mother()).isNull();
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void updatingParentAfterItsChildrenOrChangingItsSexThrowsConflict() throws NotFoundException {
+    HorseDetailDto mother = horseService.getById(-2);
+    HorseDetailDto changedMother = new HorseDetailDto(
+            mother.id(),
+            mother.name(),
+            mother.description(),
+            LocalDate.of(2019, 10, 1),
+            Sex.MALE,
+            null,
+            null,
+            null,
+            mother.version()
+    );
+    ConflictException conflict = null;
+    try {
+      horseService.update(changedMother);
+    } catch (ConflictException e) {
+      conflict = e;
+    } catch (ValidationException e) {
+      throw new AssertionError(e);
+    }
+    assertThat(conflict).isNotNull();
+    assertThat(conflict.errors()).containsExactly(
+            "Cannot change birthday to given date because there are one or multiple children of this horse "
+                    + "with birthdays earlier than this date",
+            "Cannot change Sex of this horse because it is a parent to at least one Horse");
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void updatingHorseEvictsOnlyFamilyTreesContainingIt() throws Exception {
+    pedigreeIndex.reload();
+    familyTreeCache.invalidateAll();
+    HorseFamilyTreeDto tree = horseService.getFamilyTree(-10L, 4L);
+    final HorseFamilyTreeDto otherTree = horseService.getFamilyTree(-4L, 4L);
+    assertThat(horseService.getFamilyTree(-10L, 4L)).isSameAs(tree);
+
+    HorseDetailDto grandmother = horseService.getById(-6L);
+    horseService.update(new HorseDetailDto(
+            grandmother.id(),
+            "RenamedGrandmother",
+            grandmother.description(),
+            grandmother.dateOfBirth(),
+            grandmother.sex(),
+            grandmother.owner(),
+            grandmother.mother(),
+            grandmother.father(),
+            grandmother.version()
+    ));
+
+    HorseFamilyTreeDto updatedTree = horseService.getFamilyTree(-10L, 4L);
+    assertThat(updatedTree).isNotSameAs(tree);
+    assertThat(updatedTree.mother().mother().name()).isEqualTo("RenamedGrandmother");
+    assertThat(horseService.getFamilyTree(-4L, 4L)).isSameAs(otherTree);
+  }
+
+  @Test
+  @Sql(scripts = "/sql/insertData.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/reset.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void rolledBackUpdateLeavesFamilyTreesAndIndexUnchanged() throws Exception {
+    pedigreeIndex.reload();
+    familyTreeCache.invalidateAll();
+    HorseFamilyTreeDto tree = horseService.getFamilyTree(-10L, 4L);
+    HorseDetailDto grandmother = horseService.getById(-6L);
+
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+      try {
+        horseService.update(new HorseDetailDto(
+                grandmother.id(),
+                "RenamedGrandmother",
+                grandmother.description(),
+                grandmother.dateOfBirth(),
+                grandmother.sex(),
+                grandmother.owner(),
+                grandmother.mother(),
+                grandmother.father(),
+                grandmother.version()
+        ));
+      } catch (NotFoundException | ValidationException | ConflictException e) {
+        throw new IllegalStateException(e);
+      }
+      status.setRollbackOnly();
+    });
+
+    assertThat(horseService.getById(-6L).name()).isEqualTo(grandmother.name());
+    assertThat(horseService.getFamilyTree(-10L, 4L)).isSameAs(tree);
+    familyTreeCache.invalidateAll();
+    assertThat(horseService.getFamilyTree(-10L, 4L).mother().mother().name()).isEqualTo(grandmother.name());
+  }
+}
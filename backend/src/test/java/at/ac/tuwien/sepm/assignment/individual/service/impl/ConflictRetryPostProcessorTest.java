@@ -0,0 +1,61 @@
+package at.ac.tuwien.sepm.assignment.individual.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ConflictRetryPostProcessorTest {
+
+  public static class Writer {
+    int calls;
+    int conflicts;
+
+    @RetryOnConflict
+    public int write() {
+      if (++calls <= conflicts) {
+        throw new CannotAcquireLockException("Timeout trying to lock table");
+      }
+      return calls;
+    }
+
+    @RetryOnConflict
+    public void violate() {
+      calls++;
+      throw new DataIntegrityViolationException("Referential integrity constraint violation");
+    }
+  }
+
+  private static Writer retrying(Writer writer) {
+    return (Writer) new ConflictRetryPostProcessor(3, Duration.ZERO).postProcessAfterInitialization(writer, "writer");
+  }
+
+  @Test
+  public void conflictingWriteIsRetried() {
+    var writer = new Writer();
+    writer.conflicts = 2;
+
+    assertThat(retrying(writer).write()).isEqualTo(3);
+  }
+
+  @Test
+  public void conflictingWriteIsRetriedAtMostMaxAttemptsTimes() {
+    var writer = new Writer();
+    writer.conflicts = 3;
+
+    assertThatThrownBy(retrying(writer)::write).isInstanceOf(CannotAcquireLockException.class);
+    assertThat(writer.calls).isEqualTo(3);
+  }
+
+  @Test
+  public void otherFailuresAreNotRetried() {
+    var writer = new Writer();
+
+    assertThatThrownBy(retrying(writer)::violate).isInstanceOf(DataIntegrityViolationException.class);
+    assertThat(writer.calls).isEqualTo(1);
+  }
+}
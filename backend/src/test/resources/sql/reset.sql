@@ -1,25 +1,6 @@
-DROP TABLE IF EXISTS horse;
-DROP TABLE IF EXISTS owner;
-
-CREATE TABLE IF NOT EXISTS owner
-(
-    id         BIGINT AUTO_INCREMENT PRIMARY KEY,
-    first_name VARCHAR(255) NOT NULL,
-    last_name  VARCHAR(255) NOT NULL,
-    email      VARCHAR(255)
-    );
-
-CREATE TABLE IF NOT EXISTS horse
-(
-    id            BIGINT AUTO_INCREMENT PRIMARY KEY,
-    name          VARCHAR(255)            NOT NULL,
-    description   VARCHAR(4095),
-    date_of_birth DATE                    NOT NULL,
-    sex           ENUM ('MALE', 'FEMALE') NOT NULL,
-    owner_id      BIGINT,
-    mother_id     BIGINT,
-    father_id     BIGINT,
-    FOREIGN KEY (owner_id) REFERENCES owner(id) ON DELETE SET NULL,
-    FOREIGN KEY (mother_id) REFERENCES horse(id) ON DELETE SET NULL,
-    FOREIGN KEY (father_id) REFERENCES horse(id) ON DELETE SET NULL
-    );
+-- the schema is created by the migrations once, only the data is removed after every test
+SET REFERENTIAL_INTEGRITY FALSE;
+TRUNCATE TABLE horse_trigram;
+TRUNCATE TABLE horse RESTART IDENTITY;
+TRUNCATE TABLE owner RESTART IDENTITY;
+SET REFERENTIAL_INTEGRITY TRUE;
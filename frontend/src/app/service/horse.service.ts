@@ -6,6 +6,8 @@ import {Horse, HorseSearch} from '../dto/horse';
 import {Sex} from '../dto/sex';
 
 const baseUri = environment.backendUrl + '/horses';
+// the horse list only sends the description if it is requested
+const listFields = 'name,description,dateOfBirth,sex,owner';
 
 @Injectable({
   providedIn: 'root'
@@ -39,6 +41,7 @@ export class HorseService {
     if (horse.owner !== null && horse.owner !== undefined && horse.owner !== '') {
       params = params.append('ownerName', horse.owner);
     }
+    params = params.append('fields', listFields);
     return this.http.get<Horse[]>(baseUri, {params});
   }
 